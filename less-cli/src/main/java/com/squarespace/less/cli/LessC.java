@@ -114,6 +114,10 @@ public class LessC {
       .choices(LessDebugMode.values())
       .help("Enables debug mode.");
 
+    parser.addArgument("--fold-constants")
+      .action(Arguments.storeTrue())
+      .help("Evaluates operations and function calls on constant values at parse time.");
+
     parser.addArgument("--indent", "-i")
       .metavar("SPACES")
       .type(Integer.class)
@@ -132,6 +136,10 @@ public class LessC {
       .action(Arguments.storeTrue())
       .help("Syntax check only (lint).");
 
+    parser.addArgument("--memoize-mixins")
+      .action(Arguments.storeTrue())
+      .help("Reuses the output of mixin calls with identical constant arguments.");
+
     parser.addArgument("--mixin-recursion-limit", "-r")
       .metavar("LIMIT")
       .type(Integer.class)
@@ -187,9 +195,11 @@ public class LessC {
       // Options used by the compiler.
       LessOptions opts = new LessOptions();
       opts.compress(res.getBoolean("compress"));
+      opts.foldConstants(res.getBoolean("fold_constants"));
       opts.importOnce(res.getBoolean("import_once"));
       opts.importPaths(parseImportPaths(res));
       opts.indent(res.getInt("indent"));
+      opts.memoizeMixins(res.getBoolean("memoize_mixins"));
       opts.mixinRecursionLimit(res.getInt("mixin_recursion_limit"));
       opts.importRecursionLimit(res.getInt("import_recursion_limit"));
       opts.strict(res.getBoolean("strict"));
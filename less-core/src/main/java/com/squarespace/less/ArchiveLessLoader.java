@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static com.squarespace.less.core.SyntaxErrorMaker.importError;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.squarespace.less.core.LessUtils;
+
+
+/**
+ * Serves imports out of a zip or jar archive, without unpacking it. The
+ * archive's entries appear under a mount root, so the entry "mixins/a.less"
+ * of an archive mounted at "/theme" is loaded from "/theme/mixins/a.less".
+ *
+ * The entry index is built once from the archive's central directory, so
+ * {@link #exists(Path)} is a single lookup. Entries are decompressed on first
+ * load and the decoded source is cached.
+ *
+ * Only entries under the mount root are visible; entries whose names lead
+ * outside it are ignored. A jailed loader, like {@link JailedFilesystemLessLoader},
+ * additionally only serves files ending in ".less" or ".css".
+ */
+public class ArchiveLessLoader implements LessLoader, Closeable {
+
+  /**
+   * Pattern to ensure import paths end in a legal extension.
+   */
+  private static final Pattern ACCEPT_IMPORT = Pattern.compile(".*\\.(less|css)$");
+
+  private final ZipFile archive;
+
+  private final Path mountRoot;
+
+  private final boolean jailed;
+
+  private final Map<Path, ZipEntry> entries;
+
+  private final ConcurrentMap<Path, String> sources = new ConcurrentHashMap<>();
+
+  public ArchiveLessLoader(Path archive, Path mountRoot) throws IOException {
+    this(archive, mountRoot, false);
+  }
+
+  public ArchiveLessLoader(Path archive, Path mountRoot, boolean jailed) throws IOException {
+    this.archive = new ZipFile(archive.toFile());
+    this.mountRoot = mountRoot.toAbsolutePath().normalize();
+    this.jailed = jailed;
+    this.entries = index(this.archive, this.mountRoot);
+  }
+
+  @Override
+  public boolean exists(Path path) {
+    return entry(path) != null;
+  }
+
+  @Override
+  public String load(Path path) throws LessException {
+    Path key = normalize(path);
+    String source = sources.get(key);
+    if (source != null) {
+      return source;
+    }
+    ZipEntry entry = entry(key);
+    if (entry == null) {
+      throw new LessException(importError(path, "File cannot be found"));
+    }
+    try {
+      source = LessUtils.decodeUtf8(read(entry));
+    } catch (IOException e) {
+      throw new LessException(importError(path, e.getMessage()));
+    }
+    String existing = sources.putIfAbsent(key, source);
+    return existing == null ? source : existing;
+  }
+
+  @Override
+  public Path normalize(Path path) {
+    return (path == null) ? null : path.toAbsolutePath().normalize();
+  }
+
+  /**
+   * Root under which the archive's entries are visible.
+   */
+  public Path mountRoot() {
+    return mountRoot;
+  }
+
+  /**
+   * Number of files visible in the archive.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Drops all decompressed sources.
+   */
+  public void clear() {
+    sources.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    sources.clear();
+    archive.close();
+  }
+
+  private ZipEntry entry(Path path) {
+    Path key = normalize(path);
+    if (jailed && !ACCEPT_IMPORT.matcher(key.getFileName().toString()).matches()) {
+      return null;
+    }
+    return entries.get(key);
+  }
+
+  private byte[] read(ZipEntry entry) throws IOException {
+    long size = entry.getSize();
+    ByteArrayOutputStream out = new ByteArrayOutputStream(size > 0 ? (int)size : 8192);
+    try (InputStream in = archive.getInputStream(entry)) {
+      byte[] buf = new byte[8192];
+      int n;
+      while ((n = in.read(buf)) != -1) {
+        out.write(buf, 0, n);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Maps the path of each file entry under the mount root to the entry.
+   */
+  private static Map<Path, ZipEntry> index(ZipFile archive, Path mountRoot) {
+    Map<Path, ZipEntry> result = new HashMap<>(archive.size() * 2);
+    Enumeration<? extends ZipEntry> iter = archive.entries();
+    while (iter.hasMoreElements()) {
+      ZipEntry entry = iter.nextElement();
+      if (entry.isDirectory()) {
+        continue;
+      }
+      Path path = mountRoot.resolve(entry.getName()).normalize();
+      if (path.startsWith(mountRoot)) {
+        result.put(path, entry);
+      }
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Wraps another loader, remembering whether each path exists and the contents
+ * of each path loaded. Resolving an import probes the importing file's
+ * directory and then each import path, so most {@link #exists(Path)} calls
+ * are for paths which do not exist; both answers are cached.
+ *
+ * An entry is trusted for the check interval, after which the path is asked
+ * about again. For a {@link FilesystemLessLoader} delegate the file's
+ * modification time and size are compared to detect changes; for other
+ * loaders the contents are loaded again. Once the number of paths or the
+ * total size of the cached contents exceeds its limit, the least-recently
+ * used paths are evicted. A single instance is meant to be shared by many
+ * {@link LessContext}s and is safe to use from many threads.
+ */
+public class CachingLessLoader implements LessLoader {
+
+  /**
+   * Default interval between checks of a path, in milliseconds.
+   */
+  public static final long DEFAULT_CHECK_INTERVAL = 2000;
+
+  /**
+   * Default maximum number of paths cached.
+   */
+  public static final int DEFAULT_MAX_ENTRIES = 16 * 1024;
+
+  /**
+   * Default maximum total size of the cached contents, in characters.
+   */
+  public static final long DEFAULT_MAX_WEIGHT = 16 * 1024 * 1024;
+
+  private final Map<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+  private final LessLoader delegate;
+
+  private final FilesystemLessLoader filesystem;
+
+  private final long checkIntervalNanos;
+
+  private final int maxEntries;
+
+  private final long maxWeight;
+
+  private long weight;
+
+  public CachingLessLoader(LessLoader delegate) {
+    this(delegate, DEFAULT_CHECK_INTERVAL);
+  }
+
+  /**
+   * Constructs a loader which checks each path again after {@code checkInterval}
+   * milliseconds. An interval of zero checks the path on every call, but still
+   * avoids loading contents which are unchanged.
+   */
+  public CachingLessLoader(LessLoader delegate, long checkInterval) {
+    this(delegate, checkInterval, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+  }
+
+  /**
+   * Constructs a loader which checks each path again after {@code checkInterval}
+   * milliseconds, and caches at most {@code maxEntries} paths and
+   * {@code maxWeight} characters of contents.
+   */
+  public CachingLessLoader(LessLoader delegate, long checkInterval, int maxEntries, long maxWeight) {
+    this.delegate = delegate;
+    this.filesystem = delegate instanceof FilesystemLessLoader ? (FilesystemLessLoader)delegate : null;
+    this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkInterval);
+    this.maxEntries = maxEntries;
+    this.maxWeight = maxWeight;
+  }
+
+  @Override
+  public boolean exists(Path path) {
+    return entry(path).exists;
+  }
+
+  @Override
+  public String load(Path path) throws LessException {
+    Entry entry = entry(path);
+    String contents = entry.contents;
+    if (contents == null) {
+      contents = delegate.load(path);
+      Entry loaded = entry.withContents(contents);
+      synchronized (this) {
+        if (entries.get(path) == entry) {
+          put(path, loaded);
+        }
+      }
+    }
+    return contents;
+  }
+
+  @Override
+  public Path normalize(Path path) {
+    return delegate.normalize(path);
+  }
+
+  /**
+   * Drops the cached state for the path.
+   */
+  public synchronized void invalidate(Path path) {
+    Entry old = entries.remove(path);
+    if (old != null) {
+      weight -= old.weight();
+    }
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    weight = 0;
+  }
+
+  /**
+   * Number of paths currently cached.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Total size of the cached contents, in characters.
+   */
+  public synchronized long weight() {
+    return weight;
+  }
+
+  /**
+   * Returns the entry for the path, checking the path again if the entry is
+   * missing or older than the check interval.
+   */
+  private Entry entry(Path path) {
+    long now = System.nanoTime();
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(path);
+    }
+    if (entry != null && now - entry.checked < checkIntervalNanos) {
+      return entry;
+    }
+
+    Entry fresh = check(path, now);
+    if (entry != null && entry.sameFile(fresh)) {
+      fresh = entry.checkedAt(now);
+    }
+    synchronized (this) {
+      put(path, fresh);
+    }
+    return fresh;
+  }
+
+  /**
+   * Adds the entry, then evicts least-recently used entries until we're under
+   * the limits. Must be called while holding the lock.
+   */
+  private void put(Path path, Entry entry) {
+    Entry old = entries.put(path, entry);
+    if (old != null) {
+      weight -= old.weight();
+    }
+    weight += entry.weight();
+
+    Iterator<Entry> iter = entries.values().iterator();
+    while ((weight > maxWeight || entries.size() > maxEntries) && iter.hasNext()) {
+      weight -= iter.next().weight();
+      iter.remove();
+    }
+  }
+
+  /**
+   * Asks about the path. Files are inspected with a single read of their
+   * attributes; other loaders only report whether the path exists.
+   */
+  private Entry check(Path path, long now) {
+    if (filesystem != null) {
+      try {
+        BasicFileAttributes attrs = filesystem.attributes(path);
+        if (attrs == null) {
+          return new Entry(false, -1, -1, now, null);
+        }
+        return new Entry(true, attrs.lastModifiedTime().toMillis(), attrs.size(), now, null);
+
+      } catch (IOException | UnsupportedOperationException e) {
+        // Fall through and ask the loader.
+      }
+    }
+
+    // The contents of paths we cannot inspect are loaded again each time
+    // the entry is checked.
+    return new Entry(delegate.exists(path), -1, -1, now, null);
+  }
+
+  private static class Entry {
+
+    final boolean exists;
+
+    final long modified;
+
+    final long size;
+
+    final long checked;
+
+    final String contents;
+
+    Entry(boolean exists, long modified, long size, long checked, String contents) {
+      this.exists = exists;
+      this.modified = modified;
+      this.size = size;
+      this.checked = checked;
+      this.contents = contents;
+    }
+
+    /**
+     * Indicates the other entry describes the same, unchanged file.
+     */
+    boolean sameFile(Entry other) {
+      return exists && other.exists && modified != -1 && modified == other.modified && size == other.size;
+    }
+
+    long weight() {
+      return contents == null ? 0 : contents.length();
+    }
+
+    Entry checkedAt(long now) {
+      return new Entry(exists, modified, size, now, contents);
+    }
+
+    Entry withContents(String contents) {
+      return new Entry(exists, modified, size, checked, contents);
+    }
+
+  }
+
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Bounded pool of threads for running compiles asynchronously. Work is
+ * rejected once the number of queued compiles reaches the queue depth, so
+ * callers can shed load instead of waiting. Collects queue and latency
+ * metrics which can be used to size the pool.
+ */
+public class CompileExecutor {
+
+  /**
+   * Default maximum number of compiles waiting for a thread.
+   */
+  public static final int DEFAULT_QUEUE_DEPTH = 1024;
+
+  private static final double FACTOR = 1000000.0;
+
+  private static final AtomicInteger POOL_SEQUENCE = new AtomicInteger();
+
+  private final ThreadPoolExecutor executor;
+
+  private final int queueDepth;
+
+  private final AtomicLong submitted = new AtomicLong();
+
+  private final AtomicLong rejected = new AtomicLong();
+
+  private final AtomicLong completed = new AtomicLong();
+
+  private final AtomicLong failed = new AtomicLong();
+
+  private final AtomicLong queueTimeNanos = new AtomicLong();
+
+  private final AtomicLong runTimeNanos = new AtomicLong();
+
+  private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+  /**
+   * Constructs an executor with one thread per available processor and the
+   * default queue depth.
+   */
+  public CompileExecutor() {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_DEPTH);
+  }
+
+  /**
+   * Constructs an executor with the given number of threads, rejecting work
+   * once {@code queueDepth} compiles are waiting.
+   */
+  public CompileExecutor(int threads, int queueDepth) {
+    this.queueDepth = queueDepth;
+    this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(queueDepth), new DaemonThreadFactory(),
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Submits a task, returning a future which completes with its result. If
+   * the queue is full the future fails with a {@link RejectedExecutionException}.
+   */
+  public <T> CompletableFuture<T> submit(final Callable<T> task) {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    final long queued = System.nanoTime();
+    submitted.incrementAndGet();
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          // Skip work whose caller has already cancelled it.
+          if (future.isDone()) {
+            return;
+          }
+
+          long started = System.nanoTime();
+          T result = null;
+          Throwable error = null;
+          try {
+            result = task.call();
+          } catch (Throwable t) {
+            error = t;
+          }
+
+          // Update metrics before completing, so they are visible to the caller.
+          long finished = System.nanoTime();
+          queueTimeNanos.addAndGet(started - queued);
+          runTimeNanos.addAndGet(finished - started);
+          updateMax(maxLatencyNanos, finished - queued);
+          if (error == null) {
+            completed.incrementAndGet();
+            future.complete(result);
+          } else {
+            failed.incrementAndGet();
+            future.completeExceptionally(error);
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      rejected.incrementAndGet();
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Stops accepting new work. Compiles already queued will still run.
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /** Maximum number of compiles which can wait for a thread */
+  public int queueDepth() {
+    return queueDepth;
+  }
+
+  /** Number of compiles currently waiting for a thread */
+  public int queued() {
+    return executor.getQueue().size();
+  }
+
+  /** Number of compiles currently running */
+  public int active() {
+    return executor.getActiveCount();
+  }
+
+  /** Number of compiles submitted, including rejected ones */
+  public long submitted() {
+    return submitted.get();
+  }
+
+  /** Number of compiles rejected because the queue was full */
+  public long rejected() {
+    return rejected.get();
+  }
+
+  /** Number of compiles which completed successfully */
+  public long completed() {
+    return completed.get();
+  }
+
+  /** Number of compiles which failed with an exception */
+  public long failed() {
+    return failed.get();
+  }
+
+  /** Mean time compiles spent waiting for a thread */
+  public double meanQueueTimeMs() {
+    return mean(queueTimeNanos.get());
+  }
+
+  /** Mean time compiles spent running */
+  public double meanRunTimeMs() {
+    return mean(runTimeNanos.get());
+  }
+
+  /** Maximum time from submission to completion of any compile */
+  public double maxLatencyMs() {
+    return maxLatencyNanos.get() / FACTOR;
+  }
+
+  private double mean(long totalNanos) {
+    long count = completed.get() + failed.get();
+    return count == 0 ? 0.0 : totalNanos / FACTOR / count;
+  }
+
+  private static void updateMax(AtomicLong max, long value) {
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * Creates daemon threads so an idle pool never prevents the JVM from exiting.
+   */
+  private static class DaemonThreadFactory implements ThreadFactory {
+
+    private final int pool = POOL_SEQUENCE.incrementAndGet();
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "less-compile-" + pool + "-" + sequence.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+
+  }
+
+}
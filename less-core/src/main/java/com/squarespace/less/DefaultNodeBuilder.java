@@ -16,6 +16,8 @@
 
 package com.squarespace.less;
 
+import static com.squarespace.less.core.StringInterner.intern;
+
 import com.squarespace.less.model.Block;
 import com.squarespace.less.model.BlockDirective;
 import com.squarespace.less.model.Comment;
@@ -47,7 +49,7 @@ public class DefaultNodeBuilder implements NodeBuilder {
 
   @Override
   public BlockDirective buildBlockDirective(String name, Block block) {
-    return new BlockDirective(name, block);
+    return new BlockDirective(intern(name), block);
   }
 
   @Override
@@ -62,17 +64,17 @@ public class DefaultNodeBuilder implements NodeBuilder {
 
   @Override
   public Definition buildDefinition(String name, Node value) {
-    return new Definition(name, value);
+    return new Definition(intern(name), value);
   }
 
   @Override
   public Definition buildDefinition(String name, Node value, boolean important) {
-    return new Definition(name, value, important);
+    return new Definition(intern(name), value, important);
   }
 
   @Override
   public Directive buildDirective(String name, Node value) {
-    return new Directive(name, value);
+    return new Directive(intern(name), value);
   }
 
   @Override
@@ -82,12 +84,12 @@ public class DefaultNodeBuilder implements NodeBuilder {
 
   @Override
   public Mixin buildMixin(String name, MixinParams params, Guard guard) {
-    return new Mixin(name, params, guard);
+    return new Mixin(intern(name), params, guard);
   }
 
   @Override
   public Mixin buildMixin(String name, MixinParams params, Guard guard, Block block) {
-    return new Mixin(name, params, guard, block);
+    return new Mixin(intern(name), params, guard, block);
   }
 
   @Override
@@ -102,17 +104,17 @@ public class DefaultNodeBuilder implements NodeBuilder {
 
   @Override
   public Parameter buildParameter(String name) {
-    return new Parameter(name);
+    return new Parameter(intern(name));
   }
 
   @Override
   public Parameter buildParameter(String name, Node value) {
-    return new Parameter(name, value);
+    return new Parameter(intern(name), value);
   }
 
   @Override
   public Parameter buildParameter(String name, boolean variadic) {
-    return new Parameter(name, variadic);
+    return new Parameter(intern(name), variadic);
   }
 
   @Override
@@ -142,17 +144,17 @@ public class DefaultNodeBuilder implements NodeBuilder {
 
   @Override
   public Variable buildVariable(String name) {
-    return new Variable(name);
+    return new Variable(intern(name));
   }
 
   @Override
   public Variable buildVariable(String name, boolean curly) {
-    return new Variable(name, curly, false);
+    return new Variable(intern(name), curly, false);
   }
 
   @Override
   public Variable buildVariable(String name, boolean curly, boolean ruleset) {
-    return new Variable(name, curly, ruleset);
+    return new Variable(intern(name), curly, ruleset);
   }
 
 }
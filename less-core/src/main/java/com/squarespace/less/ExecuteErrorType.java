@@ -40,9 +40,18 @@ public enum ExecuteErrorType implements LessErrorType {
   BAD_COLOR_MATH
   ("A color cannot %(arg0)s %(arg1)s"),
 
+  COMPILE_CANCELLED
+  ("The compile was cancelled"),
+
+  COMPILE_TIME_LIMIT
+  ("The compile exceeded its time limit of %(arg0)sms"),
+
   DIVIDE_BY_ZERO
   ("Attempt to divide %(arg0)s by zero."),
 
+  EVALUATION_LIMIT
+  ("The compile exceeded its limit of %(arg0)s evaluated nodes"),
+
   EXPECTED_BOOLOP
   ("Expected a boolean operator but found %(arg0)s"),
 
@@ -76,6 +85,12 @@ public enum ExecuteErrorType implements LessErrorType {
   MIXIN_UNDEFINED
   ("Failed to locate a mixin using selector %(arg0)s"),
 
+  OUTPUT_SIZE_LIMIT
+  ("The output exceeded its size limit of %(arg0)s characters"),
+
+  OUTPUT_WRITE
+  ("Failed to write output: %(arg0)s"),
+
   PATTERN_COMPILE
   ("Regular expression pattern compilation failed: %(arg0)s"),
 
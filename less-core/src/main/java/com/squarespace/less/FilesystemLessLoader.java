@@ -19,14 +19,11 @@ package com.squarespace.less;
 import static com.squarespace.less.core.SyntaxErrorMaker.importError;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 
-import com.squarespace.less.core.Constants;
 import com.squarespace.less.core.LessUtils;
 
 
@@ -50,11 +47,26 @@ public class FilesystemLessLoader implements LessLoader {
     return (path == null) ? null : path.toAbsolutePath();
   }
 
+  /**
+   * Returns the attributes of the file at the path, or null where
+   * {@link #exists(Path)} would return false. Subclasses which restrict
+   * {@code exists} must restrict this in the same way.
+   */
+  public BasicFileAttributes attributes(Path path) throws IOException {
+    try {
+      return Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Reads the file into a single buffer sized from the file, and decodes it
+   * in one pass.
+   */
   private String readFile(Path path) throws LessException {
-    try (InputStream input = Files.newInputStream(path)) {
-      try (Reader reader = new InputStreamReader(input, Constants.UTF8)) {
-        return LessUtils.readToString(reader);
-      }
+    try {
+      return LessUtils.decodeUtf8(Files.readAllBytes(path));
 
     } catch (NoSuchFileException e) {
       throw new LessException(importError(path, "File cannot be found"));
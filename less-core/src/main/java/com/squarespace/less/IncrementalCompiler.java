@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.squarespace.less.model.Stylesheet;
+import com.squarespace.less.parse.ImportCache;
+
+
+/**
+ * Tracks the files imported by a set of root stylesheets so they can be
+ * recompiled incrementally. When files change, only those files and the
+ * files which import them are parsed again; the trees for all other imports
+ * are reused from the compiler's {@link ImportCache}.
+ *
+ * Paths passed to this class must be normalized the same way as the
+ * {@link LessLoader} normalizes import paths.
+ */
+public class IncrementalCompiler {
+
+  private final LessCompiler compiler;
+
+  /**
+   * Files reached from each root stylesheet during its most recent parse.
+   */
+  private final Map<Path, Set<Path>> roots = new HashMap<>();
+
+  public IncrementalCompiler(LessCompiler compiler) {
+    if (compiler.importCache() == null) {
+      throw new IllegalArgumentException("Incremental compiles require a compiler with an import cache");
+    }
+    this.compiler = compiler;
+  }
+
+  public LessCompiler compiler() {
+    return compiler;
+  }
+
+  /**
+   * Parses a root stylesheet, recording the files it depends on.
+   */
+  public Stylesheet parse(String raw, LessContext ctx, Path rootPath) throws LessException {
+    Stylesheet sheet = compiler.parse(raw, ctx, rootPath);
+    Set<Path> files = ctx.importer().graph().reachable(rootPath);
+    synchronized (roots) {
+      roots.put(rootPath, files);
+    }
+    return sheet;
+  }
+
+  /**
+   * Indicate that the given files have changed. Evicts their cached trees and
+   * returns the root stylesheets which must be parsed and rendered again.
+   */
+  public Set<Path> changed(Collection<Path> paths) {
+    ImportCache cache = compiler.importCache();
+    for (Path path : paths) {
+      cache.invalidate(path);
+    }
+
+    Set<Path> result = new LinkedHashSet<>();
+    synchronized (roots) {
+      for (Map.Entry<Path, Set<Path>> entry : roots.entrySet()) {
+        if (!Collections.disjoint(entry.getValue(), paths)) {
+          result.add(entry.getKey());
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Re-parses every root stylesheet affected by the changed files, returning
+   * the new stylesheets, keyed by root path, which need to be rendered.
+   */
+  public Map<Path, Stylesheet> update(Collection<Path> paths, LessOptions options, LessLoader loader)
+      throws LessException {
+    Map<Path, Stylesheet> result = new LinkedHashMap<>();
+    for (Path rootPath : changed(paths)) {
+      LessContext ctx = new LessContext(options, loader);
+      ctx.setFunctionTable(compiler.functionTable());
+      String raw = ctx.importer().loadSource(rootPath);
+      result.put(rootPath, parse(raw, ctx, rootPath));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the files the root stylesheet depended on during its most
+   * recent parse, including itself.
+   */
+  public Set<Path> dependencies(Path rootPath) {
+    synchronized (roots) {
+      Set<Path> files = roots.get(rootPath);
+      return files == null ? Collections.<Path>emptySet() : Collections.unmodifiableSet(files);
+    }
+  }
+
+  /**
+   * Stops tracking the given root stylesheet.
+   */
+  public void remove(Path rootPath) {
+    synchronized (roots) {
+      roots.remove(rootPath);
+    }
+  }
+
+}
@@ -16,8 +16,10 @@
 
 package com.squarespace.less;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,15 +51,27 @@ public class JailedFilesystemLessLoader extends FilesystemLessLoader {
 
   @Override
   public boolean exists(Path path) {
+    Path tempPath = jailed(path);
+    return tempPath != null && Files.exists(tempPath);
+  }
+
+  @Override
+  public BasicFileAttributes attributes(Path path) throws IOException {
+    Path tempPath = jailed(path);
+    return tempPath == null ? null : super.attributes(tempPath);
+  }
+
+  /**
+   * Returns the path resolved against the jail root, or null if it has an
+   * illegal extension or lies outside the root.
+   */
+  private Path jailed(Path path) {
     Matcher matcher = ACCEPT_IMPORT.matcher(path.getFileName().toString());
     if (!matcher.matches()) {
-      return false;
+      return null;
     }
     Path tempPath = jailRoot.resolve(path).toAbsolutePath().normalize();
-    if (!tempPath.startsWith(jailRoot)) {
-      return false;
-    }
-    return Files.exists(tempPath);
+    return tempPath.startsWith(jailRoot) ? tempPath : null;
   }
 
 }
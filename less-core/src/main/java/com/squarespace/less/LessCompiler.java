@@ -16,13 +16,24 @@
 
 package com.squarespace.less;
 
+import static com.squarespace.less.core.ExecuteErrorMaker.varUndefined;
+
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
+import com.squarespace.less.core.FlexList;
 import com.squarespace.less.exec.FunctionTable;
 import com.squarespace.less.exec.LessEvaluator;
 import com.squarespace.less.exec.LessRenderer;
+import com.squarespace.less.model.Definition;
+import com.squarespace.less.model.Node;
 import com.squarespace.less.model.Stylesheet;
+import com.squarespace.less.parse.ImportCache;
 import com.squarespace.less.parse.LessParser;
+import com.squarespace.less.parse.TreeCompactor;
 import com.squarespace.less.plugins.ColorBlendingFunctions;
 import com.squarespace.less.plugins.ColorChannelFunctions;
 import com.squarespace.less.plugins.ColorDefinitionFunctions;
@@ -51,44 +62,164 @@ public class LessCompiler {
    */
   private final FunctionTable functionTable;
 
+  /**
+   * Cache of parsed imports shared by all parses using this compiler, or null.
+   */
+  private final ImportCache importCache;
+
+  /**
+   * Executor used for asynchronous compiles, created on first use if none
+   * was provided.
+   */
+  private volatile CompileExecutor executor;
+
   public LessCompiler() {
     this(DEFAULT_FUNCTION_TABLE);
   }
 
   public LessCompiler(FunctionTable functionTable) {
+    this(functionTable, null);
+  }
+
+  /**
+   * Constructs a compiler which reuses parsed imports across compiles. An
+   * imported file is only parsed again when its contents, or the contents of
+   * a file it imports, have changed.
+   */
+  public LessCompiler(FunctionTable functionTable, ImportCache importCache) {
+    this(functionTable, importCache, null);
+  }
+
+  /**
+   * Constructs a compiler which runs asynchronous compiles on the given executor.
+   */
+  public LessCompiler(FunctionTable functionTable, ImportCache importCache, CompileExecutor executor) {
     this.functionTable = functionTable;
     this.functionTable.setInUse();
+    this.importCache = importCache;
+    this.executor = executor;
   }
 
   public FunctionTable functionTable() {
     return functionTable;
   }
 
+  public ImportCache importCache() {
+    return importCache;
+  }
+
+  /**
+   * Returns the executor used for asynchronous compiles.
+   */
+  public CompileExecutor executor() {
+    CompileExecutor result = executor;
+    if (result == null) {
+      synchronized (this) {
+        result = executor;
+        if (result == null) {
+          result = new CompileExecutor();
+          executor = result;
+        }
+      }
+    }
+    return result;
+  }
+
   public Stylesheet parse(String raw, LessContext ctx) throws LessException {
     return parse(raw, ctx, null);
   }
 
   public Stylesheet parse(String raw, LessContext ctx, Path filePath) throws LessException {
+    ctx.governor().start();
     LessStats stats = ctx.stats();
     long started = stats.now();
-    LessParser parser = new LessParser(ctx);
+    LessParser parser = new LessParser(ctx, importCache);
     parser.parse(raw, filePath);
     Stylesheet sheet = parser.stylesheet();
     stats.parseDone(raw.length(), started);
     return sheet;
   }
 
+  /**
+   * Evaluates and renders a parsed stylesheet. The stylesheet is not modified,
+   * so many threads can render the same instance at once, each using its own
+   * {@link LessContext}.
+   */
   public String render(Stylesheet stylesheet, LessContext ctx) throws LessException {
+    ctx.governor().start();
     LessEvaluator engine = new LessEvaluator(ctx);
     Stylesheet expanded = engine.evaluate(stylesheet);
     return LessRenderer.render(ctx, expanded);
   }
 
+  /**
+   * Evaluates and renders a parsed stylesheet, streaming the output to
+   * {@code out} as each top-level block completes.
+   */
+  public void render(Stylesheet stylesheet, LessContext ctx, Appendable out) throws LessException {
+    ctx.governor().start();
+    LessEvaluator engine = new LessEvaluator(ctx);
+    Stylesheet expanded = engine.evaluate(stylesheet);
+    LessRenderer.render(ctx, expanded, out);
+  }
+
+  /**
+   * Evaluates and renders a parsed stylesheet with the given variables
+   * overriding the root-level definitions of the same name. Names may be given
+   * with or without the leading '@'. The stylesheet is not modified, so one
+   * parsed tree can be rendered with many different sets of overrides.
+   */
+  public String render(Stylesheet stylesheet, LessContext ctx, Map<String, Node> overrides)
+      throws LessException {
+    ctx.governor().start();
+    LessEvaluator engine = new LessEvaluator(ctx);
+    Stylesheet expanded = engine.evaluate(stylesheet, overrides);
+    return LessRenderer.render(ctx, expanded);
+  }
+
+  /**
+   * Parses a map of variable names to source snippets, e.g. "red" or
+   * "@base * 2", into values suitable for {@link #render(Stylesheet, LessContext, Map)}.
+   * The result can be reused across renders to avoid parsing the snippets again.
+   */
+  public Map<String, Node> parseVariables(Map<String, String> sources, LessContext ctx) throws LessException {
+    Map<String, Node> result = new LinkedHashMap<>();
+    for (Map.Entry<String, String> entry : sources.entrySet()) {
+      String name = entry.getKey();
+      if (!name.startsWith("@")) {
+        name = "@" + name;
+      }
+      Stylesheet sheet = parse(name + ": " + entry.getValue() + ";", ctx);
+      FlexList<Node> rules = sheet.block().rules();
+      Definition definition = null;
+      for (int i = 0; i < rules.size(); i++) {
+        Node node = rules.get(i);
+        if (node instanceof Definition && ((Definition)node).name().equals(name)) {
+          definition = (Definition)node;
+        }
+      }
+      if (definition == null) {
+        throw new LessException(varUndefined(name));
+      }
+      result.put(name, definition.value());
+    }
+    return result;
+  }
+
   public Stylesheet expand(Stylesheet stylesheet, LessContext ctx) throws LessException {
+    ctx.governor().start();
     LessEvaluator engine = new LessEvaluator(ctx);
     return engine.evaluate(stylesheet);
   }
 
+  /**
+   * Trims the storage of a parsed or expanded stylesheet before it is cached
+   * for a long time. Must not be called while the stylesheet is being rendered.
+   */
+  public void compact(Stylesheet stylesheet) {
+    TreeCompactor.compact(stylesheet);
+  }
+
   public String compile(String raw, LessContext ctx) throws LessException {
     return compile(raw, ctx, null);
   }
@@ -102,6 +233,42 @@ public class LessCompiler {
     return result;
   }
 
+  /**
+   * Compiles the source, streaming the output to {@code out}.
+   */
+  public void compile(String raw, LessContext ctx, Path filePath, Appendable out) throws LessException {
+    Stylesheet sheet = parse(raw, ctx, filePath);
+    LessStats stats = ctx.stats();
+    long started = stats.now();
+    render(sheet, ctx, out);
+    stats.compileDone(started);
+  }
+
+  /**
+   * Compiles the source on the compiler's executor, returning a future which
+   * completes with the CSS output. If the executor's queue is full the future
+   * fails immediately with a {@link java.util.concurrent.RejectedExecutionException}.
+   */
+  public CompletableFuture<String> compileAsync(String raw, LessOptions options) {
+    return compileAsync(raw, options, null, null);
+  }
+
+  /**
+   * Compiles the source on the compiler's executor, using the loader to
+   * resolve imports relative to {@code filePath}.
+   */
+  public CompletableFuture<String> compileAsync(final String raw, final LessOptions options,
+      final LessLoader loader, final Path filePath) {
+    return executor().submit(new Callable<String>() {
+      @Override
+      public String call() throws LessException {
+        LessContext ctx = new LessContext(options, loader);
+        ctx.setFunctionTable(functionTable);
+        return compile(raw, ctx, filePath);
+      }
+    });
+  }
+
   /**
    * Builds the default function table.  Functions are stateless so this table
    * can be shared among many instances of the compiler.  This method provides
@@ -110,12 +277,12 @@ public class LessCompiler {
    */
   public static FunctionTable defaultFunctionTable() {
     FunctionTable table = new FunctionTable();
-    table.register(new ColorBlendingFunctions());
-    table.register(new ColorChannelFunctions());
-    table.register(new ColorDefinitionFunctions());
-    table.register(new ColorOperationsFunctions());
-    table.register(new ListFunctions());
-    table.register(new MathFunctions());
+    table.registerPure(new ColorBlendingFunctions());
+    table.registerPure(new ColorChannelFunctions());
+    table.registerPure(new ColorDefinitionFunctions());
+    table.registerPure(new ColorOperationsFunctions());
+    table.registerPure(new ListFunctions());
+    table.registerPure(new MathFunctions());
     table.register(new MiscFunctions());
     table.register(new StringFunctions());
     table.register(new TypeFunctions());
@@ -26,6 +26,7 @@ import com.squarespace.less.exec.MixinResolver;
 import com.squarespace.less.exec.NodeComparator;
 import com.squarespace.less.exec.NodeRenderer;
 import com.squarespace.less.exec.RenderEnv;
+import com.squarespace.less.exec.ResourceGovernor;
 import com.squarespace.less.exec.SelectorUtils;
 import com.squarespace.less.model.Node;
 import com.squarespace.less.model.Selector;
@@ -65,6 +66,11 @@ public class LessContext {
    */
   private final Importer importer;
 
+  /**
+   * Enforces the resource limits for this compile.
+   */
+  private final ResourceGovernor governor;
+
   private FunctionTable functionTable;
 
   private NodeBuilder nodeBuilder = DEFAULT_NODE_BUILDER;
@@ -86,6 +92,7 @@ public class LessContext {
     this.importer = new Importer(this, loader);
     this.comparator = new NodeComparator(this);
     this.selectorParser = new SelectorParser(this);
+    this.governor = new ResourceGovernor(opts);
   }
 
   public LessOptions options() {
@@ -96,6 +103,10 @@ public class LessContext {
     return importer;
   }
 
+  public ResourceGovernor governor() {
+    return governor;
+  }
+
   public NodeBuilder nodeBuilder() {
     return nodeBuilder;
   }
@@ -116,6 +127,21 @@ public class LessContext {
     return selectorParser;
   }
 
+  /**
+   * Clears all per-compile state, so this context can be reused for another
+   * compile with the same options, loader and function table. Buffers
+   * allocated by earlier compiles are kept for reuse.
+   */
+  public void reset() {
+    bufferStack.reset();
+    mixinResolver.clear();
+    stats.reset();
+    importer.reset();
+    governor.reset();
+    importDepth = 0;
+    mixinDepth = 0;
+  }
+
   public void sanityCheck() {
     bufferStack.sanityCheck();
   }
@@ -124,6 +150,14 @@ public class LessContext {
     return (functionTable != null) ? functionTable.get(symbol) : null;
   }
 
+  /**
+   * Indicates the function named {@code symbol} is flagged as pure in the
+   * function table.
+   */
+  public boolean isPureFunction(String symbol) {
+    return functionTable != null && functionTable.isPure(symbol);
+  }
+
   public LessStats stats() {
     return stats;
   }
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.squarespace.less.exec.FunctionTable;
+
+
+/**
+ * Bounded pool of {@link LessContext} instances sharing the same options,
+ * loader and function table. Contexts are reset when released, so buffers
+ * grown by earlier compiles are reused. Safe for use by multiple threads.
+ */
+public class LessContextPool {
+
+  /**
+   * Default maximum number of idle contexts retained.
+   */
+  public static final int DEFAULT_MAX_IDLE = 16;
+
+  private final BlockingQueue<LessContext> idle;
+
+  private final LessOptions options;
+
+  private final LessLoader loader;
+
+  private final FunctionTable functionTable;
+
+  public LessContextPool(LessOptions options, LessLoader loader, FunctionTable functionTable) {
+    this(options, loader, functionTable, DEFAULT_MAX_IDLE);
+  }
+
+  public LessContextPool(LessOptions options, LessLoader loader, FunctionTable functionTable, int maxIdle) {
+    this.idle = new ArrayBlockingQueue<>(maxIdle);
+    this.options = options;
+    this.loader = loader;
+    this.functionTable = functionTable;
+  }
+
+  /**
+   * Returns an idle context, or a new one if none are available.
+   */
+  public LessContext acquire() {
+    LessContext ctx = idle.poll();
+    if (ctx == null) {
+      ctx = new LessContext(options, loader);
+      ctx.setFunctionTable(functionTable);
+    }
+    return ctx;
+  }
+
+  /**
+   * Resets the context and returns it to the pool. If the pool is full the
+   * context is discarded.
+   */
+  public void release(LessContext ctx) {
+    ctx.reset();
+    idle.offer(ctx);
+  }
+
+  /**
+   * Number of idle contexts in the pool.
+   */
+  public int idle() {
+    return idle.size();
+  }
+
+}
@@ -45,6 +45,12 @@ public class LessOptions {
 
   private int importRecursionLimit = DEFAULT_RECURSION_LIMIT;
 
+  private long compileTimeLimit;
+
+  private long evaluationLimit;
+
+  private long outputSizeLimit;
+
   public LessOptions() {
   }
 
@@ -61,10 +67,32 @@ public class LessOptions {
     return flags.contains(Option.COMPRESS);
   }
 
+  /**
+   * Maximum wall-clock time for a compile, in milliseconds, or zero for no limit.
+   */
+  public long compileTimeLimit() {
+    return compileTimeLimit;
+  }
+
   public boolean debug() {
     return flags.contains(Option.DEBUG);
   }
 
+  /**
+   * Maximum number of nodes evaluated during a compile, or zero for no limit.
+   */
+  public long evaluationLimit() {
+    return evaluationLimit;
+  }
+
+  /**
+   * Indicates operations and pure function calls with constant operands
+   * are evaluated once at parse time.
+   */
+  public boolean foldConstants() {
+    return flags.contains(Option.FOLD_CONSTANTS);
+  }
+
   public boolean hideWarnings() {
     return flags.contains(Option.HIDE_WARNINGS);
   }
@@ -89,10 +117,25 @@ public class LessOptions {
     return importRecursionLimit;
   }
 
+  /**
+   * Indicates the output of mixin calls with constant arguments is reused
+   * for identical calls within a compile.
+   */
+  public boolean memoizeMixins() {
+    return flags.contains(Option.MEMOIZE_MIXINS);
+  }
+
   public int mixinRecursionLimit() {
     return mixinRecursionLimit;
   }
 
+  /**
+   * Maximum size of the output, in characters, or zero for no limit.
+   */
+  public long outputSizeLimit() {
+    return outputSizeLimit;
+  }
+
   public boolean strict() {
     return flags.contains(Option.STRICT);
   }
@@ -109,6 +152,10 @@ public class LessOptions {
     set(flag, Option.COMPRESS);
   }
 
+  public void compileTimeLimit(long millis) {
+    this.compileTimeLimit = millis;
+  }
+
   public void debug(boolean flag) {
     set(flag, Option.DEBUG);
   }
@@ -125,6 +172,14 @@ public class LessOptions {
     this.importPaths.add(Paths.get(path));
   }
 
+  public void evaluationLimit(long limit) {
+    this.evaluationLimit = limit;
+  }
+
+  public void foldConstants(boolean flag) {
+    set(flag, Option.FOLD_CONSTANTS);
+  }
+
   public void hideWarnings(boolean flag) {
     set(flag, Option.HIDE_WARNINGS);
   }
@@ -145,10 +200,18 @@ public class LessOptions {
     this.importRecursionLimit = limit;
   }
 
+  public void memoizeMixins(boolean flag) {
+    set(flag, Option.MEMOIZE_MIXINS);
+  }
+
   public void mixinRecursionLimit(int limit) {
     this.mixinRecursionLimit = limit;
   }
 
+  public void outputSizeLimit(long limit) {
+    this.outputSizeLimit = limit;
+  }
+
   public void strict(boolean flag) {
     set(flag, Option.STRICT);
   }
@@ -172,9 +235,11 @@ public class LessOptions {
   private enum Option {
     COMPRESS,
     DEBUG,
+    FOLD_CONSTANTS,
     HIDE_WARNINGS,
     IMPORT_ONCE,
     LINE_NUMBERS,
+    MEMOIZE_MIXINS,
     STRICT,
     TABS,
     TRACING
@@ -32,6 +32,8 @@ public class LessStats {
 
   private int importCount;
 
+  private int cachedImports;
+
   private int fileReads;
 
   private int totalSize;
@@ -60,7 +62,12 @@ public class LessStats {
     return importCount;
   }
 
-  /** Number of files read from disk */
+  /** Number of imports whose parse tree was taken from the import cache */
+  public int cachedImports() {
+    return cachedImports;
+  }
+
+  /** Number of files read from disk, including reads to validate cached trees */
   public int fileReads() {
     return fileReads;
   }
@@ -80,6 +87,19 @@ public class LessStats {
     return maxMixinDepth;
   }
 
+  /** Clears all stats, to reuse this instance for another compile */
+  public void reset() {
+    parseTimeMs = 0;
+    compileTimeMs = 0;
+    diskWaitTimeMs = 0;
+    importCount = 0;
+    cachedImports = 0;
+    fileReads = 0;
+    totalSize = 0;
+    maxImportDepth = 0;
+    maxMixinDepth = 0;
+  }
+
   /** Time in nanoseconds */
   public long now() {
     return System.nanoTime();
@@ -116,11 +136,16 @@ public class LessStats {
    */
   public void importDone(boolean cached) {
     importCount++;
-    if (!cached) {
-      fileReads++;
+    if (cached) {
+      cachedImports++;
     }
   }
 
+  /** Indicate that a file was read */
+  public void fileRead() {
+    fileReads++;
+  }
+
   private double deltaMs(long started) {
     return (now() - started) / FACTOR;
   }
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import com.squarespace.less.core.OffHeapCache;
+
+
+/**
+ * Wraps another loader, keeping the sources it loads in an {@link OffHeapCache}
+ * as UTF-8 bytes. Each source is decoded again when it is loaded, so only the
+ * sources of the current compile occupy the Java heap.
+ *
+ * Cached sources are not checked for changes; call {@link #invalidate(Path)}
+ * when a file is modified.
+ */
+public class OffHeapLessLoader implements LessLoader {
+
+  private final LessLoader delegate;
+
+  private final OffHeapCache<Path> cache;
+
+  public OffHeapLessLoader(LessLoader delegate) {
+    this(delegate, new OffHeapCache<Path>());
+  }
+
+  public OffHeapLessLoader(LessLoader delegate, OffHeapCache<Path> cache) {
+    this.delegate = delegate;
+    this.cache = cache;
+  }
+
+  @Override
+  public boolean exists(Path path) {
+    return cache.get(path) != null || delegate.exists(path);
+  }
+
+  @Override
+  public String load(Path path) throws LessException {
+    ByteBuffer buf = cache.get(path);
+    if (buf != null) {
+      return StandardCharsets.UTF_8.decode(buf).toString();
+    }
+    String source = delegate.load(path);
+    cache.put(path, source.getBytes(StandardCharsets.UTF_8));
+    return source;
+  }
+
+  @Override
+  public Path normalize(Path path) {
+    return delegate.normalize(path);
+  }
+
+  /**
+   * Drops the cached source for the path.
+   */
+  public void invalidate(Path path) {
+    cache.remove(path);
+  }
+
+  public OffHeapCache<Path> cache() {
+    return cache;
+  }
+
+}
@@ -16,6 +16,8 @@
 
 package com.squarespace.less.core;
 
+import java.io.IOException;
+
 
 /**
  * General-purpose buffer. Wraps a {@link StringBuilder} with some
@@ -100,6 +102,17 @@ public class Buffer {
     prev = Chars.LINE_FEED;
   }
 
+  /**
+   * Writes the contents of the buffer to {@code out} and clears it, preserving
+   * the current indentation level and previous character.
+   */
+  public void drainTo(Appendable out) throws IOException {
+    if (buf.length() != 0) {
+      out.append(buf);
+      buf.setLength(0);
+    }
+  }
+
   /**
    * Increments the indentation level.
    */
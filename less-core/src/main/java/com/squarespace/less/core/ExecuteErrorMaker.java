@@ -49,10 +49,22 @@ public class ExecuteErrorMaker {
     return error(ExecuteErrorType.BAD_COLOR_MATH).arg0(msg).arg1(arg.repr());
   }
 
+  public static LessErrorInfo compileCancelled() {
+    return error(ExecuteErrorType.COMPILE_CANCELLED);
+  }
+
+  public static LessErrorInfo compileTimeLimit(long limit) {
+    return error(ExecuteErrorType.COMPILE_TIME_LIMIT).arg0(limit);
+  }
+
   public static LessErrorInfo divideByZero(Node arg) {
     return error(ExecuteErrorType.DIVIDE_BY_ZERO).arg0(arg);
   }
 
+  public static LessErrorInfo evaluationLimit(long limit) {
+    return error(ExecuteErrorType.EVALUATION_LIMIT).arg0(limit);
+  }
+
   public static LessErrorInfo expectedBoolOp(Object op) {
     return error(ExecuteErrorType.EXPECTED_BOOLOP).arg0(op);
   }
@@ -89,6 +101,14 @@ public class ExecuteErrorMaker {
     return error(ExecuteErrorType.MIXIN_UNDEFINED).arg0(selector);
   }
 
+  public static LessErrorInfo outputSizeLimit(long limit) {
+    return error(ExecuteErrorType.OUTPUT_SIZE_LIMIT).arg0(limit);
+  }
+
+  public static LessErrorInfo outputWrite(String msg) {
+    return error(ExecuteErrorType.OUTPUT_WRITE).arg0(msg);
+  }
+
   public static LessErrorInfo patternCompile(String msg) {
     return error(ExecuteErrorType.PATTERN_COMPILE).arg0(msg);
   }
@@ -67,6 +67,15 @@ public class FlexList<E> {
     return size;
   }
 
+  /**
+   * Trims the internal array to the current number of elements.
+   */
+  public void compact() {
+    if (elems.length > size) {
+      elems = Arrays.copyOf(elems, size);
+    }
+  }
+
   /**
    * Logical clear of the list. Just sets the size to zero.
    */
@@ -26,6 +26,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
@@ -96,9 +97,20 @@ public class LessUtils {
    * Reads a UTF8-encoded file into a string.
    */
   public static String readFile(Path path) throws IOException {
-    try (InputStream file = Files.newInputStream(path)) {
-      return readStream(file);
+    return decodeUtf8(Files.readAllBytes(path));
+  }
+
+  /**
+   * Decodes UTF-8 bytes into a string in a single pass. Pure ASCII input,
+   * the common case for stylesheets, skips the UTF-8 decoder entirely.
+   */
+  public static String decodeUtf8(byte[] data) {
+    for (int i = 0; i < data.length; i++) {
+      if (data[i] < 0) {
+        return new String(data, StandardCharsets.UTF_8);
+      }
     }
+    return new String(data, StandardCharsets.ISO_8859_1);
   }
 
   /**
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.core;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Cache of byte arrays held outside the Java heap in direct buffers, which
+ * evicts the least-recently used entries once their total size exceeds a
+ * limit. Large, mostly cold data such as import sources and serialized
+ * trees can be kept here without adding to the old generation.
+ */
+public class OffHeapCache<K> {
+
+  /**
+   * Default maximum size, in bytes.
+   */
+  public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+  private final Map<K, ByteBuffer> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+  private final long maxBytes;
+
+  private long bytes;
+
+  public OffHeapCache() {
+    this(DEFAULT_MAX_BYTES);
+  }
+
+  public OffHeapCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns a read-only view of the cached bytes for the key, or null.
+   */
+  public synchronized ByteBuffer get(K key) {
+    ByteBuffer buf = entries.get(key);
+    return buf == null ? null : buf.asReadOnlyBuffer();
+  }
+
+  /**
+   * Copies the bytes into a direct buffer and caches it under the key.
+   * Entries larger than the limit are not cached.
+   */
+  public void put(K key, byte[] data) {
+    if (data.length > maxBytes) {
+      return;
+    }
+    ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+    buf.put(data);
+    buf.flip();
+
+    synchronized (this) {
+      ByteBuffer old = entries.put(key, buf);
+      if (old != null) {
+        bytes -= old.capacity();
+      }
+      bytes += buf.capacity();
+
+      // Evict least-recently used entries until we're under the limit.
+      Iterator<ByteBuffer> iter = entries.values().iterator();
+      while (bytes > maxBytes && iter.hasNext()) {
+        bytes -= iter.next().capacity();
+        iter.remove();
+      }
+    }
+  }
+
+  public synchronized void remove(K key) {
+    ByteBuffer old = entries.remove(key);
+    if (old != null) {
+      bytes -= old.capacity();
+    }
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    bytes = 0;
+  }
+
+  /**
+   * Number of entries currently cached.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Total size of all entries currently cached, in bytes.
+   */
+  public synchronized long bytes() {
+    return bytes;
+  }
+
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.core;
+
+
+/**
+ * Bounded table of canonical strings. A parsed tree holds many copies of the
+ * same identifiers, each a fresh substring of the source. Replacing them with
+ * a canonical instance reduces the heap retained by cached trees, and lets
+ * equality checks succeed on the first identity comparison.
+ *
+ * Each string hashes to a single slot and a colliding string simply replaces
+ * the previous one, so the table never grows and needs no locking. Races are
+ * harmless since strings are immutable: the worst case is a missed share.
+ */
+public class StringInterner {
+
+  /**
+   * Number of slots in the global table.
+   */
+  public static final int DEFAULT_SIZE = 16384;
+
+  /**
+   * Longer strings are rarely repeated and are not interned.
+   */
+  public static final int MAX_LENGTH = 128;
+
+  private static final StringInterner GLOBAL = new StringInterner(DEFAULT_SIZE);
+
+  private final String[] table;
+
+  private final int mask;
+
+  /**
+   * Constructs a table with the given number of slots, rounded up to a power of two.
+   */
+  public StringInterner(int size) {
+    int capacity = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+    this.table = new String[capacity];
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * Returns the canonical instance of the string from the global table.
+   */
+  public static String intern(String value) {
+    return GLOBAL.get(value);
+  }
+
+  /**
+   * Returns the canonical instance of the string, adding it to the table
+   * if no equal string is present.
+   */
+  public String get(String value) {
+    if (value == null || value.length() > MAX_LENGTH) {
+      return value;
+    }
+    int hash = value.hashCode();
+    int index = (hash ^ (hash >>> 16)) & mask;
+    String existing = table[index];
+    if (existing != null && existing.equals(value)) {
+      return existing;
+    }
+    table[index] = value;
+    return value;
+  }
+
+}
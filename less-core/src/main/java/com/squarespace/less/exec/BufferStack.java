@@ -83,6 +83,13 @@ public class BufferStack {
     index--;
   }
 
+  /**
+   * Marks all buffers as available, keeping them allocated for reuse.
+   */
+  public void reset() {
+    index = 0;
+  }
+
   /**
    * Asserts that the internal stack's state is valid.
    */
@@ -16,11 +16,13 @@
 
 package com.squarespace.less.exec;
 
+import static com.squarespace.less.core.ExecuteErrorMaker.outputWrite;
 import static com.squarespace.less.model.NodeType.BLOCK_DIRECTIVE;
 import static com.squarespace.less.model.NodeType.MEDIA;
 import static com.squarespace.less.model.NodeType.RULESET;
 import static com.squarespace.less.model.NodeType.STYLESHEET;
 
+import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.EnumSet;
@@ -29,6 +31,7 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 
 import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
 import com.squarespace.less.core.Buffer;
 import com.squarespace.less.core.LessInternalException;
 import com.squarespace.less.core.LessUtils;
@@ -45,6 +48,11 @@ import com.squarespace.less.model.Stylesheet;
  * suppress empty blocks, and eliminate duplicate rules.  It also
  * ensures that each nested block is emitted in the output model
  * at the correct scope.
+ *
+ * Each top-level block is written to the output as soon as it, and every
+ * top-level node before it, is complete. Duplicate top-level values and
+ * comments keep their last occurrence, so from the first of these onward
+ * the top-level nodes are held until the model is finished.
  */
 public class CssModel {
 
@@ -79,57 +87,105 @@ public class CssModel {
    */
   private final Deque<CssBlock> stack = new ArrayDeque<>();
 
+  /**
+   * Top-level nodes which have not yet been written to the output.
+   */
+  private final Set<CssNode> pending = new LinkedHashSet<>();
+
   /**
    * Internal buffer for rendering the CSS output.
    */
   private final Buffer buffer;
 
+  /**
+   * Destination for the CSS output.
+   */
+  private final Appendable out;
+
+  /**
+   * Enforces the output size limit.
+   */
+  private final ResourceGovernor governor;
+
+  /**
+   * Top-level block, representing the stylesheet.
+   */
+  private final CssBlock root;
+
   /**
    * Current block being operated on.
    */
   private CssBlock current;
 
   /**
-   * Constructs a CSS model with the given context.
+   * Indicates a top-level value was written whose rule end has been deferred
+   * until we know whether another node follows it.
+   */
+  private boolean ruleEndPending;
+
+  /**
+   * Constructs a CSS model with the given context, collecting the output
+   * in memory.
    */
   public CssModel(LessContext ctx) {
-    buffer = ctx.newBuffer();
-    current = new CssBlock(STYLESHEET);
+    this(ctx, new StringBuilder());
   }
 
   /**
-   * Renders the CSS model into text form.
+   * Constructs a CSS model with the given context, streaming the output
+   * to {@code out}.
    */
-  public String render() {
-    if (current.type() != STYLESHEET) {
+  public CssModel(LessContext ctx, Appendable out) {
+    this.buffer = ctx.newBuffer();
+    this.out = out;
+    this.governor = ctx.governor();
+    this.root = new CssBlock(STYLESHEET);
+    this.current = root;
+  }
+
+  /**
+   * Writes any remaining output and returns the CSS in text form. If the
+   * output was streamed, this returns its string representation.
+   */
+  public String render() throws LessException {
+    finish();
+    return out.toString();
+  }
+
+  /**
+   * Writes any remaining output.
+   */
+  public void finish() throws LessException {
+    if (current != root) {
       throw new LessInternalException("Serious error: stack was not fully popped.");
     }
-    buffer.reset();
-    current.render(buffer);
-    return buffer.toString();
+    flush(true);
   }
 
   /**
    * Appends a value to the current block.
    */
-  public CssModel value(String value) {
-    current.add(new CssValue(value));
+  public CssModel value(String value) throws LessException {
+    governor.output(value.length());
+    add(current, new CssValue(value));
     return this;
   }
 
   /**
    * Appends a comment to the current block.
    */
-  public CssModel comment(String value) {
-    current.add(new CssComment(value));
+  public CssModel comment(String value) throws LessException {
+    governor.output(value.length());
+    add(current, new CssComment(value));
     return this;
   }
 
   /**
    * Add raw strings to the header of the current block.
    */
-  public CssModel header(String ... strings) {
+  public CssModel header(String ... strings) throws LessException {
     for (String raw : strings) {
+      governor.output(raw.length());
       current.add(raw);
     }
     return this;
@@ -138,7 +194,7 @@ public class CssModel {
   /**
    * Pushes an empty block onto the stack and associates it with the given node type.
    */
-  public CssModel push(NodeType type) {
+  public CssModel push(NodeType type) throws LessException {
     stack.push(current);
     CssBlock child = new CssBlock(type);
     defer(child);
@@ -150,24 +206,82 @@ public class CssModel {
    * Pops a block from the top of the stack, setting flags indicating whether
    * anything was appended to the block.  This is used to prune empty blocks.
    */
-  public CssModel pop() {
+  public CssModel pop() throws LessException {
     CssBlock parent = current.parent();
     parent.populated |= current.populated;
+    current.complete = true;
     current = stack.pop();
+    if (parent == root) {
+      flush(false);
+    }
     return this;
   }
 
+  /**
+   * Adds a node to the given block. Top-level nodes are queued for output.
+   */
+  private void add(CssBlock block, CssNode node) {
+    if (block != root) {
+      block.add(node);
+      return;
+    }
+
+    // Ensure that the last unique value wins, as within a block.
+    if (node.isValue()) {
+      pending.remove(node);
+    }
+    pending.add(node);
+  }
+
+  /**
+   * Writes out the top-level blocks up to the first one which is incomplete,
+   * or the first value or comment, which a later duplicate may still move.
+   * If {@code all} is set, writes out every node.
+   */
+  private void flush(boolean all) throws LessException {
+    boolean compress = buffer.compress();
+    Iterator<CssNode> iter = pending.iterator();
+    while (iter.hasNext()) {
+      CssNode node = iter.next();
+      if (!all && (node.isValue() || !node.complete())) {
+        break;
+      }
+      iter.remove();
+      if (ruleEndPending) {
+        buffer.ruleEnd();
+        ruleEndPending = false;
+      }
+      node.render(buffer);
+      if (node instanceof CssValue) {
+        // In compressed mode the final rule is not terminated, so defer
+        // the rule end until the next node is written.
+        if (compress) {
+          ruleEndPending = true;
+        } else {
+          buffer.ruleEnd();
+        }
+      }
+    }
+    try {
+      buffer.drainTo(out);
+    } catch (IOException e) {
+      throw new LessException(outputWrite(e.getMessage()));
+    }
+  }
+
   /**
    * Push this block up the stack until it finds its proper parent.
    */
-  private void defer(CssBlock block) {
+  private void defer(CssBlock block) throws LessException {
     if (current.accept(block)) {
+      add(current, block);
       return;
     }
     Iterator<CssBlock> iter = stack.iterator();
     while (iter.hasNext()) {
       CssBlock candidate = iter.next();
       if (candidate.accept(block)) {
+        add(candidate, block);
         return;
       }
     }
@@ -194,6 +308,8 @@ public class CssModel {
 
     private boolean populated = false;
 
+    private boolean complete = false;
+
     CssBlock(NodeType type) {
       this.type = type;
       switch (type) {
@@ -221,11 +337,10 @@ public class CssModel {
 
     /**
      * Determines if this block can accept a block of the given type as a
-     * child.
+     * child, and if so becomes its parent.
      */
     public boolean accept(CssBlock block) {
       if (acceptFilter.contains(block.type())) {
-        add(block);
         block.setParent(this);
         return true;
       }
@@ -266,6 +381,11 @@ public class CssModel {
       return false;
     }
 
+    @Override
+    public boolean complete() {
+      return complete;
+    }
+
     @Override
     public void render(Buffer buf) {
       if (!populated) {
@@ -374,6 +494,13 @@ public class CssModel {
       return true;
     }
 
+    /**
+     * Indicates that nothing more will be added to this node.
+     */
+    public boolean complete() {
+      return true;
+    }
+
     public abstract void render(Buffer buf);
 
   }
@@ -16,6 +16,9 @@
 
 package com.squarespace.less.exec;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.squarespace.less.LessContext;
 import com.squarespace.less.LessException;
 import com.squarespace.less.core.Buffer;
@@ -36,9 +39,15 @@ public class ExecEnv {
   protected final LessContext ctx;
 
   /**
-   * Stack frames for execution.
+   * Stack frames for execution. The stack is immutable, so copies of this
+   * environment share it.
    */
-  protected final FlexList<Block> frames;
+  protected FrameStack frames;
+
+  /**
+   * Mutable evaluation state, shared with all copies of this environment.
+   */
+  protected final ExecState state;
 
   /**
    * List of warnings emitted during execution.
@@ -62,18 +71,34 @@ public class ExecEnv {
    */
   private boolean importantFlagged;
 
+  /**
+   * Definitions resolved against the current frames, by variable name.
+   * Dropped when the frames change or any block's variable table changes.
+   */
+  private Map<String, Definition> definitionCache;
+
+  /**
+   * Frames against which the cached definitions were resolved.
+   */
+  private FrameStack cachedFrames;
+
+  /**
+   * Variable table version against which the cached definitions were resolved.
+   */
+  private int cachedVersion;
+
   /**
    * Constructs an instance associated with the given compile context.
    */
   public ExecEnv(LessContext ctx) {
-    this(ctx, new FlexList<Block>(64), null);
+    this(ctx, FrameStack.EMPTY, null);
   }
 
   /**
    * Constructs an instance associated with the given compile context and
    * initial stack contents.
    */
-  public ExecEnv(LessContext ctx, FlexList<Block> initialStack) {
+  public ExecEnv(LessContext ctx, FrameStack initialStack) {
     this(ctx, initialStack, null);
   }
 
@@ -81,10 +106,19 @@ public class ExecEnv {
    * Constructs an instance associated with the given compile context,
    * initial stack contents, and warning list.
    */
-  public ExecEnv(LessContext ctx, FlexList<Block> initialStack, FlexList<String> warnings) {
+  public ExecEnv(LessContext ctx, FrameStack initialStack, FlexList<String> warnings) {
+    this(ctx, initialStack, warnings, new ExecState());
+  }
+
+  /**
+   * Constructs an instance associated with the given compile context,
+   * initial stack contents, warning list and evaluation state.
+   */
+  protected ExecEnv(LessContext ctx, FrameStack initialStack, FlexList<String> warnings, ExecState state) {
     this.ctx = ctx;
     this.frames = initialStack;
     this.warnings = warnings;
+    this.state = state;
   }
 
   /**
@@ -95,10 +129,18 @@ public class ExecEnv {
   }
 
   /**
-   * Returns a new {@link ExecEnv} instance with a copy of the stack frames and warnings.
+   * Returns the mutable state for the current evaluation.
+   */
+  public ExecState state() {
+    return state;
+  }
+
+  /**
+   * Returns a new {@link ExecEnv} instance sharing the stack frames and warnings.
+   * The copy shares this instance's evaluation state.
    */
   public ExecEnv copy() {
-    return new ExecEnv(ctx, frames.copy(), warnings);
+    return new ExecEnv(ctx, frames, warnings, state);
   }
 
   /**
@@ -159,10 +201,10 @@ public class ExecEnv {
   }
 
   /**
-   * Pushes a list of frames onto the stack.
+   * Pushes a stack of frames onto the stack.
    */
-  public void append(FlexList<Block> other) {
-    frames.append(other);
+  public void append(FrameStack other) {
+    frames = frames.append(other);
   }
 
   /**
@@ -197,7 +239,7 @@ public class ExecEnv {
   /**
    * Returns the stack frames.
   */
-  public FlexList<Block> frames() {
+  public FrameStack frames() {
     return frames;
   }
 
@@ -205,56 +247,70 @@ public class ExecEnv {
    * Iterate up the stack, trying to find the given variable definition in each block.
    */
   public Definition resolveDefinition(String name) throws LessException {
-    int size = frames.size();
-    for (int i = size - 1; i >= 0; i--) {
-      Definition def = frames.get(i).resolveDefinition(name);
-
-      // Future: pragma to skip over circular references, looking in a higher stack frame.
-      // To do that we check if the definition is evaluating (circular) and skip it:
-      //
-      // if (def != null && pragmaSkipCircular() && !def.evaluating()) {
-      // ...
+    int version = state.variableVersion();
+    if (cachedFrames != frames || cachedVersion != version) {
+      if (definitionCache != null) {
+        definitionCache.clear();
+      }
+      cachedFrames = frames;
+      cachedVersion = version;
 
-      // If definition exists, return it
+    } else if (definitionCache != null) {
+      Definition def = definitionCache.get(name);
       if (def != null) {
         return def;
       }
     }
-    return null;
+
+    // Future: pragma to skip over circular references, looking in a higher stack frame.
+    // To do that we check if the definition is evaluating (circular) and skip it:
+    //
+    // if (def != null && pragmaSkipCircular() && !state.evaluating(def)) {
+    // ...
+    Definition def = frames.resolveDefinition(name);
+    if (def != null) {
+      if (definitionCache == null) {
+        definitionCache = new HashMap<>();
+      }
+      definitionCache.put(name, def);
+    }
+    return def;
+  }
+
+  /**
+   * Drops the variables cached by all environments sharing this one's state,
+   * after definitions have been added to a block.
+   */
+  public void variablesChanged() {
+    state.variablesChanged();
   }
 
   /**
    * Iterate up the stack, trying to resolve the mixin against each block.
    */
   public boolean resolveMixins(MixinResolver resolver) throws LessException {
-    int size = frames.size();
-    for (int i = size - 1; i >= 0; i--) {
-      if (resolver.match(frames.get(i))) {
-        return true;
-      }
-    }
-    return false;
+    return frames.resolveMixins(resolver);
   }
 
   /**
    * Push a block node onto the stack.
    */
   public void push(BlockNode blockNode) throws LessException {
-    frames.push(blockNode.block());
+    frames = frames.push(blockNode.block());
   }
 
   /**
    * Push a block onto the stack.
    */
   public void push(Block block) throws LessException {
-    frames.push(block);
+    frames = frames.push(block);
   }
 
   /**
    * Pop the current block off the stack.
    */
   public void pop() {
-    frames.pop();
+    frames = frames.pop();
   }
 
   /**
@@ -263,11 +319,7 @@ public class ExecEnv {
    */
   public String dumpDefinitions() {
     Buffer buf = new Buffer(4);
-    int size = frames.size();
-    for (int i = size - 1; i >= 0; i--) {
-      frames.get(i).dumpDefs(buf);
-      buf.incrIndent();
-    }
+    frames.dumpDefs(buf);
     return buf.toString();
   }
 }
@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.exec;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.model.BlockNode;
+import com.squarespace.less.model.Definition;
+import com.squarespace.less.model.Ruleset;
+
+
+/**
+ * Mutable state for a single evaluation, shared by an {@link ExecEnv} and
+ * all of its copies.
+ *
+ * The parse tree is never modified during evaluation, so a parsed stylesheet
+ * can be rendered by many threads at once. Any bookkeeping which is keyed on
+ * a parsed node (closures, recursion detection) lives here instead.
+ */
+public class ExecState {
+
+  /**
+   * Closures captured for MIXIN and DETACHED_RULESET nodes, keyed on the
+   * identity of the parsed node.
+   */
+  private final Map<BlockNode, ExecEnv> closures = new IdentityHashMap<>();
+
+  /**
+   * Original RULESET nodes currently being evaluated.
+   */
+  private final Set<Ruleset> rulesets = Collections.newSetFromMap(new IdentityHashMap<Ruleset, Boolean>());
+
+  /**
+   * Stack of definitions currently being dereferenced. This is usually
+   * only a few levels deep so a linear scan is cheap.
+   */
+  private final FlexList<Definition> definitions = new FlexList<>(8);
+
+  /**
+   * Output of mixin calls with constant arguments, created on first use.
+   */
+  private MixinMemo mixinMemo;
+
+  /**
+   * Incremented whenever a block's variable table changes, to invalidate
+   * variables cached by each {@link ExecEnv}.
+   */
+  private int variableVersion;
+
+  /**
+   * Returns the closure captured for the given node, or null.
+   */
+  public ExecEnv closure(BlockNode node) {
+    return closures.get(node);
+  }
+
+  /**
+   * Captures a copy of {@code env} as the closure for the given node.
+   */
+  public void closure(BlockNode node, ExecEnv env) {
+    closures.put(node, env.copy());
+  }
+
+  /**
+   * Returns the memo of mixin call output for this evaluation.
+   */
+  public MixinMemo mixinMemo() {
+    if (mixinMemo == null) {
+      mixinMemo = new MixinMemo();
+    }
+    return mixinMemo;
+  }
+
+  /**
+   * Current version of the variable tables of all blocks.
+   */
+  public int variableVersion() {
+    return variableVersion;
+  }
+
+  /**
+   * Indicates a block's variable table has changed.
+   */
+  public void variablesChanged() {
+    variableVersion++;
+  }
+
+  /**
+   * Marks the original ruleset as being evaluated.
+   */
+  public void enter(Ruleset original) {
+    rulesets.add(original);
+  }
+
+  /**
+   * Clears the original ruleset's evaluation mark.
+   */
+  public void exit(Ruleset original) {
+    rulesets.remove(original);
+  }
+
+  /**
+   * Indicates if the original ruleset is currently being evaluated. Helps
+   * detect recursion.
+   */
+  public boolean evaluating(Ruleset original) {
+    return rulesets.contains(original);
+  }
+
+  /**
+   * Marks the definition as being dereferenced. Returns false if it is already
+   * being dereferenced, indicating a circular reference.
+   */
+  public boolean enter(Definition def) {
+    int size = definitions.size();
+    for (int i = size - 1; i >= 0; i--) {
+      if (definitions.get(i) == def) {
+        return false;
+      }
+    }
+    definitions.push(def);
+    return true;
+  }
+
+  /**
+   * Clears the mark on the most recently entered definition.
+   */
+  public void exit(Definition def) {
+    if (!definitions.isEmpty() && definitions.last() == def) {
+      definitions.pop();
+    }
+  }
+
+}
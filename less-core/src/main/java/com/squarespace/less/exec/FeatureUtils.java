@@ -22,8 +22,8 @@ import java.util.List;
 import com.squarespace.less.core.CartesianProduct;
 import com.squarespace.less.model.Expression;
 import com.squarespace.less.model.Features;
-import com.squarespace.less.model.Keyword;
 import com.squarespace.less.model.Node;
+import com.squarespace.less.model.ValueCache;
 
 
 /**
@@ -55,7 +55,7 @@ public class FeatureUtils {
         int size = nodes.size();
         for (int i = 0; i < size; i++) {
           if (i > 0) {
-            expn.add(new Keyword("and"));
+            expn.add(ValueCache.keyword("and"));
           }
           expn.add(nodes.get(i));
         }
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.exec;
+
+import com.squarespace.less.LessException;
+import com.squarespace.less.core.Buffer;
+import com.squarespace.less.model.Block;
+import com.squarespace.less.model.Definition;
+
+
+/**
+ * Immutable stack of execution frames. Pushing a frame or appending another
+ * stack returns a new stack sharing this one, so copying an {@link ExecEnv}
+ * or appending a closure's frames takes constant time.
+ *
+ * Each instance is either the empty stack, a frame pushed onto a lower
+ * stack, or another stack appended onto a lower stack. Frames are visited
+ * from the top down.
+ */
+public class FrameStack {
+
+  /**
+   * The empty stack.
+   */
+  public static final FrameStack EMPTY = new FrameStack(null, null, null, 0);
+
+  /**
+   * Stack below this frame, or null for the empty stack.
+   */
+  private final FrameStack lower;
+
+  /**
+   * Frame pushed onto the lower stack, or null if this appends a stack.
+   */
+  private final Block block;
+
+  /**
+   * Stack appended onto the lower stack, or null if this pushes a frame.
+   */
+  private final FrameStack upper;
+
+  /**
+   * Total number of frames.
+   */
+  private final int size;
+
+  private FrameStack(FrameStack lower, Block block, FrameStack upper, int size) {
+    this.lower = lower;
+    this.block = block;
+    this.upper = upper;
+    this.size = size;
+  }
+
+  /**
+   * Number of frames on the stack.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Indicates the stack has no frames.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the top-most frame, or null if the stack is empty.
+   */
+  public Block last() {
+    FrameStack stack = this;
+    while (stack.upper != null) {
+      stack = stack.upper;
+    }
+    return stack.block;
+  }
+
+  /**
+   * Returns a stack with the block pushed on top of this one.
+   */
+  public FrameStack push(Block frame) {
+    return new FrameStack(this, frame, null, size + 1);
+  }
+
+  /**
+   * Returns the stack with the top-most frame removed.
+   */
+  public FrameStack pop() {
+    if (block != null) {
+      return lower;
+    }
+    if (upper == null) {
+      return this;
+    }
+    FrameStack rest = upper.pop();
+    return rest.isEmpty() ? lower : new FrameStack(lower, null, rest, lower.size + rest.size);
+  }
+
+  /**
+   * Returns a stack with all frames of {@code other} on top of this one.
+   */
+  public FrameStack append(FrameStack other) {
+    if (other.isEmpty()) {
+      return this;
+    }
+    if (isEmpty()) {
+      return other;
+    }
+    return new FrameStack(this, null, other, size + other.size);
+  }
+
+  /**
+   * Searches the frames from the top down for the given variable definition.
+   */
+  public Definition resolveDefinition(String name) {
+    for (FrameStack stack = this; stack.size > 0; stack = stack.lower) {
+      Definition def = stack.block != null
+          ? stack.block.resolveDefinition(name)
+          : stack.upper.resolveDefinition(name);
+      if (def != null) {
+        return def;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Tries to resolve the mixin against each frame, from the top down.
+   */
+  public boolean resolveMixins(MixinResolver resolver) throws LessException {
+    for (FrameStack stack = this; stack.size > 0; stack = stack.lower) {
+      boolean matched = stack.block != null
+          ? resolver.match(stack.block)
+          : stack.upper.resolveMixins(resolver);
+      if (matched) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Collects the definitions in each frame, from the top down.
+   */
+  public void dumpDefs(Buffer buf) {
+    for (FrameStack stack = this; stack.size > 0; stack = stack.lower) {
+      if (stack.block != null) {
+        stack.block.dumpDefs(buf);
+        buf.incrIndent();
+      } else {
+        stack.upper.dumpDefs(buf);
+      }
+    }
+  }
+
+}
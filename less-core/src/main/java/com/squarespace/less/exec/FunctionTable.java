@@ -16,6 +16,9 @@
 
 package com.squarespace.less.exec;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import com.squarespace.less.core.TypeRef;
 
 
@@ -34,6 +37,17 @@ public class FunctionTable extends SymbolTable<Function> {
    */
   private static final TypeRef<Function> TYPE_REF = new TypeRef<Function>() { };
 
+  /**
+   * Names of functions whose result depends only on their arguments, and
+   * which can be evaluated once at parse time when the arguments are constant.
+   */
+  private final Set<String> pure = new HashSet<>();
+
+  /**
+   * Indicates the package being registered contains pure functions.
+   */
+  private boolean registeringPure;
+
   /**
    * Construct a table with the default number of hashmap buckets.
    */
@@ -48,6 +62,26 @@ public class FunctionTable extends SymbolTable<Function> {
     super(TYPE_REF, numBuckets);
   }
 
+  /**
+   * Registers all functions in the package, flagging each of them as pure.
+   * A pure function must not depend on anything but its arguments.
+   */
+  public void registerPure(Registry<Function> pkg) {
+    registeringPure = true;
+    try {
+      register(pkg);
+    } finally {
+      registeringPure = false;
+    }
+  }
+
+  /**
+   * Indicates the function named {@code symbol} has been flagged as pure.
+   */
+  public boolean isPure(String symbol) {
+    return pure.contains(symbol);
+  }
+
   /**
    * Registers a {@link Function} under its {@link Function#name()}
    */
@@ -55,6 +89,9 @@ public class FunctionTable extends SymbolTable<Function> {
   public void registerSymbol(Object impl) {
     Function func = (Function)impl;
     put(func.name(), func);
+    if (registeringPure) {
+      pure.add(func.name());
+    }
   }
 
 }
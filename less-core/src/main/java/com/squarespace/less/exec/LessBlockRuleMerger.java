@@ -84,9 +84,12 @@ public class LessBlockRuleMerger {
     Rule mapped = ruleMap.get(name);
     if (mapped == null) {
 
-      // First rule we've seen with this property.
-      ruleMap.put(name, rule);
-      rules.add(rule);
+      // First rule we've seen with this property. Merging modifies the rule
+      // and its value, so take a copy since both may be part of the parse tree.
+      mapped = rule.copy(copyValue(rule.value()), rule.important());
+      mapped.warnings(rule.warnings());
+      ruleMap.put(name, mapped);
+      rules.add(mapped);
       return;
     }
 
@@ -106,6 +109,19 @@ public class LessBlockRuleMerger {
     }
   }
 
+  /**
+   * Copy a list value so it can be safely appended to.
+   */
+  private Node copyValue(Node value) {
+    if (value instanceof ExpressionList) {
+      return new ExpressionList(new ArrayList<>(((ExpressionList)value).expressions()));
+    }
+    if (value instanceof Expression) {
+      return new Expression(((Expression)value).values());
+    }
+    return value;
+  }
+
   /**
    * Combine values into a comma-separated list.
    */
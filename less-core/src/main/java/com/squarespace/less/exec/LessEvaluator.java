@@ -21,7 +21,9 @@ import static com.squarespace.less.core.ExecuteErrorMaker.mixinRecurse;
 import static com.squarespace.less.core.ExecuteErrorMaker.mixinUndefined;
 import static com.squarespace.less.core.ExecuteErrorMaker.varBlockLevel;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import com.squarespace.less.LessContext;
 import com.squarespace.less.LessException;
@@ -34,7 +36,6 @@ import com.squarespace.less.model.Definition;
 import com.squarespace.less.model.DetachedRuleset;
 import com.squarespace.less.model.Directive;
 import com.squarespace.less.model.Dummy;
-import com.squarespace.less.model.GenericBlock;
 import com.squarespace.less.model.Guard;
 import com.squarespace.less.model.Import;
 import com.squarespace.less.model.ImportMarker;
@@ -67,9 +68,15 @@ public class LessEvaluator {
    */
   private final LessOptions opts;
 
+  /**
+   * Resource limits for the current compile.
+   */
+  private final ResourceGovernor governor;
+
   public LessEvaluator(LessContext ctx) {
     this.ctx = ctx;
     this.opts = ctx.options();
+    this.governor = ctx.governor();
   }
 
   /**
@@ -77,8 +84,18 @@ public class LessEvaluator {
    * mixins, imports, etc have been evaluated and expanded.
    */
   public Stylesheet evaluate(Stylesheet sheet) throws LessException {
+    return evaluate(sheet, Collections.<String, Node>emptyMap());
+  }
+
+  /**
+   * Evaluate the {@link Stylesheet} with the given variables defined at the end of
+   * the root block, overriding any root-level definitions of the same name. The
+   * parsed stylesheet is not modified, so one tree can be rendered with many
+   * different sets of overrides.
+   */
+  public Stylesheet evaluate(Stylesheet sheet, Map<String, Node> overrides) throws LessException {
     ExecEnv env = ctx.newEnv();
-    Stylesheet result = evaluateStylesheet(env, sheet);
+    Stylesheet result = evaluateStylesheet(env, sheet, overrides);
     if (env.hasError()) {
       throw env.error();
     }
@@ -124,13 +141,13 @@ public class LessEvaluator {
     Ruleset ruleset = input.copy(env);
 
     env.push(ruleset);
-    original.enter();
+    env.state().enter(original);
 
     Block block = ruleset.block();
     expandMixins(env, block);
     evaluateRules(env, block, forceImportant);
 
-    original.exit();
+    env.state().exit(original);
     env.pop();
     ruleset.evaluated(true);
     return ruleset;
@@ -142,7 +159,7 @@ public class LessEvaluator {
   public DetachedRuleset evaluateDetachedRuleset(ExecEnv env, DetachedRuleset input, boolean forceImportant)
       throws LessException {
 
-    ExecEnv closure = input.closure();
+    ExecEnv closure = env.state().closure(input);
     if (closure != null) {
       env = env.copy();
       env.append(closure.frames());
@@ -164,12 +181,23 @@ public class LessEvaluator {
   /**
    * Evaluate a STYLESHEET node.
    */
-  private Stylesheet evaluateStylesheet(ExecEnv env, Stylesheet original) throws LessException {
+  private Stylesheet evaluateStylesheet(ExecEnv env, Stylesheet original, Map<String, Node> overrides)
+      throws LessException {
+
     Stylesheet stylesheet = original.copy();
     stylesheet.extendContext(new ExtendIndex());
     env.push(stylesheet);
 
+    // The last definition of a variable in a block wins, so appending to the
+    // copied root block overrides the parsed definitions.
     Block block = stylesheet.block();
+    for (Map.Entry<String, Node> entry : overrides.entrySet()) {
+      String name = entry.getKey();
+      if (!name.startsWith("@")) {
+        name = "@" + name;
+      }
+      block.appendNode(ctx.nodeBuilder().buildDefinition(name, entry.getValue()));
+    }
     expandMixins(env, block);
     evaluateRules(env, block, false);
 
@@ -187,6 +215,7 @@ public class LessEvaluator {
     Import currentImport = null;
     for (int i = 0; i < rules.size(); i++) {
       Node node = rules.get(i);
+      governor.tick();
 
       try {
         switch (node.type()) {
@@ -204,8 +233,7 @@ public class LessEvaluator {
             // when they are referenced.  Set the closure for the environment
             // in which the detached ruleset is defined.
             if (value instanceof DetachedRuleset) {
-              DetachedRuleset ruleset = (DetachedRuleset)value;
-              ruleset.closure(env);
+              env.state().closure((DetachedRuleset)value, env);
 
             } else {
               // Definitions has a non-BlockNode value.
@@ -241,10 +269,11 @@ public class LessEvaluator {
 
           case MIXIN:
           {
-            // Register the closure on the original MIXIN.
+            // Register the closure for the original MIXIN.
             Mixin mixin = (Mixin) ((Mixin)node).original();
-            if (mixin.closure() == null) {
-              mixin.closure(env);
+            ExecState state = env.state();
+            if (state.closure(mixin) == null) {
+              state.closure(mixin, env);
             }
             break;
           }
@@ -275,7 +304,15 @@ public class LessEvaluator {
             } else {
               newRule = (Rule)rule.eval(env);
             }
-            newRule.warnings(env.warnings());
+
+            // Never attach warnings to the parsed rule, which may be shared.
+            String warnings = env.warnings();
+            if (warnings != null) {
+              if (newRule == rule) {
+                newRule = rule.copy(rule.value(), rule.important());
+              }
+              newRule.warnings(warnings);
+            }
             node = newRule;
             break;
           }
@@ -312,7 +349,7 @@ public class LessEvaluator {
         return;
       }
 
-      rules.set(i, node);
+      block.set(i, node);
     }
   }
 
@@ -340,12 +377,13 @@ public class LessEvaluator {
         }
 
         // Splice the rules produced by the mixin call into the current block,
-        // replacing the mixin call.
+        // replacing the mixin call. The block registers any new variable
+        // definitions itself.
+        governor.tick(mixinResult.rules().size());
         i += block.splice(i, 1, mixinResult) - 1;
 
-        // Indicate the block has changed, new variable definitions may have
-        // been added.
-        block.resetVariableCache();
+        // Indicate new variable definitions may have been added.
+        env.variablesChanged();
         block.orFlags(mixinResult);
       }
     }
@@ -404,20 +442,39 @@ public class LessEvaluator {
       throws LessException {
 
     MixinCall call = matcher.mixinCall();
+    Mixin original = (Mixin) ((Mixin)match.mixin()).original();
+
+    // Reuse the output of an identical earlier call, if the mixin's output
+    // depends only on its arguments.
+    MixinMemo memo = null;
+    MixinMemo.Key key = null;
+    if (opts.memoizeMixins() && !opts.tracing()) {
+      memo = env.state().mixinMemo();
+      key = memo.key(ctx, original, matcher.mixinArgs(), call.important(), env.isStrictMath());
+      if (key != null) {
+        Block cached = memo.get(key);
+        if (cached != null) {
+          // Count the rules as if the mixin's body had been evaluated.
+          governor.tick(cached.rules().size());
+          collector.appendBlock(cached);
+          return true;
+        }
+      }
+    }
+
     Mixin mixin = ((Mixin)match.mixin()).copy();
     MixinParams params = (MixinParams) match.params().eval(env);
 
     // Attempt to bind the arguments to this mixin's parameters. If the argument binding
     // failed, this is considered a resolution failure.
-    GenericBlock bindings = matcher.bind(params);
+    Block bindings = matcher.bind(params);
     if (bindings == null) {
       return false;
     }
 
     // If the closure has been set on this mixin, use it.
     env = env.copy();
-    Mixin original = (Mixin) mixin.original();
-    ExecEnv closureEnv = original.closure();
+    ExecEnv closureEnv = env.state().closure(original);
     if (closureEnv != null) {
       env.append(closureEnv.frames());
     }
@@ -432,6 +489,9 @@ public class LessEvaluator {
     if (guard != null) {
       Node result = guard.eval(env);
       if (FALSE.equals(result)) {
+        if (key != null) {
+          memo.put(key, new Block(0));
+        }
         return true;
       }
     }
@@ -443,7 +503,6 @@ public class LessEvaluator {
     }
 
     // Enter the mixin body and execute it.
-    original.enter();
     ctx.enterMixin();
 
     env.push(mixin);
@@ -464,6 +523,9 @@ public class LessEvaluator {
       evaluateRules(env, block, call.important());
       exception = env.error();
       collector.appendBlock(block);
+      if (key != null && exception == null) {
+        memo.put(key, block);
+      }
 
     } catch (LessException e) {
       exception = e;
@@ -479,7 +541,6 @@ public class LessEvaluator {
     }
 
     ctx.exitMixin();
-    original.exit();
     return true;
   }
 
@@ -87,11 +87,15 @@ public class LessRenderer {
   private int warningId;
 
   protected LessRenderer(LessContext context, Stylesheet stylesheet) {
+    this(context, stylesheet, new CssModel(context));
+  }
+
+  protected LessRenderer(LessContext context, Stylesheet stylesheet, CssModel model) {
     this.ctx = context;
     this.stylesheet = stylesheet;
     this.env = context.newRenderEnv();
     this.opts = context.options();
-    this.model = new CssModel(context);
+    this.model = model;
   }
 
   /**
@@ -99,14 +103,24 @@ public class LessRenderer {
    */
   public static String render(LessContext context, Stylesheet sheet) throws LessException {
     LessRenderer renderer = new LessRenderer(context, sheet);
-    return renderer.render();
+    renderer.render();
+    return renderer.model.render();
   }
 
   /**
-   * Render the {@link Stylesheet} to the {@link CssModel} and return the
-   * rendered output.
+   * Shortcut to render a stylesheet against the given context, streaming
+   * the output to {@code out} as each top-level block completes.
    */
-  private String render() throws LessException {
+  public static void render(LessContext context, Stylesheet sheet, Appendable out) throws LessException {
+    LessRenderer renderer = new LessRenderer(context, sheet, new CssModel(context, out));
+    renderer.render();
+    renderer.model.finish();
+  }
+
+  /**
+   * Render the {@link Stylesheet} to the {@link CssModel}.
+   */
+  private void render() throws LessException {
     LessIndexer indexer = new LessIndexer(env);
     indexer.index(stylesheet);
 
@@ -119,8 +133,6 @@ public class LessRenderer {
     renderImports(block);
     renderBlock(block, false);
     env.pop();
-
-    return model.render();
   }
 
   /**
@@ -411,14 +423,14 @@ public class LessRenderer {
   /**
    * Emit a tracing comment.
    */
-  private void emitTrace(String what) {
+  private void emitTrace(String what) throws LessException {
     model.comment("/* TRACE[" + (++traceId) + "]: " + what + " */\n");
   }
 
   /**
    * Emit a warning comment.
    */
-  private void emitWarnings(String what, String warnings) {
+  private void emitWarnings(String what, String warnings) throws LessException {
     if (warnings != null) {
       // Build a comment containing all of the warnings.
       model.comment("/* WARNING[" + (++warningId) + "] raised evaluating " + what + ": " + warnings + " */\n");
@@ -19,11 +19,7 @@ package com.squarespace.less.exec;
 import static com.squarespace.less.core.ExecuteErrorMaker.argNamedNotFound;
 import static com.squarespace.less.core.ExecuteErrorMaker.argTooMany;
 
-import java.util.ArrayDeque;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Queue;
 
 import com.squarespace.less.LessContext;
 import com.squarespace.less.LessException;
@@ -32,7 +28,6 @@ import com.squarespace.less.core.LessUtils;
 import com.squarespace.less.model.Argument;
 import com.squarespace.less.model.Block;
 import com.squarespace.less.model.Expression;
-import com.squarespace.less.model.GenericBlock;
 import com.squarespace.less.model.MixinCall;
 import com.squarespace.less.model.MixinCallArgs;
 import com.squarespace.less.model.MixinParams;
@@ -82,7 +77,7 @@ public class MixinMatcher {
    *     value in the variadic expression, or skip them if they were just used for pattern matching.
    *  4. Build the final list of bindings and add the special "@arguments" variable.
    */
-  public GenericBlock bind(MixinParams mixinParams) throws LessException {
+  public Block bind(MixinParams mixinParams) throws LessException {
     if (mixinParams.needsEval()) {
       throw new LessInternalException("Serious error: params must already be evaluated!");
     }
@@ -94,26 +89,26 @@ public class MixinMatcher {
     int paramSize = params.size();
     int argSize = args == null ? 0 : args.size();
 
-    Map<String, Node> boundValues = new LinkedHashMap<>();
-    Queue<String> names = new ArrayDeque<>();
+    // Value bound to each parameter, the order in which the parameters were
+    // first bound, and which parameters were bound by name.
+    Node[] values = new Node[paramSize];
+    int[] order = new int[paramSize];
+    boolean[] named = new boolean[paramSize];
+    int bound = 0;
 
     String variadicName = null;
     Expression variadic = null;
 
-    // Bind parameter default values, collect names, and prepare variadic expression, if any.
+    // Bind parameter default values, and prepare variadic expression, if any.
     for (int i = 0; i < paramSize; i++) {
       Parameter param = params.get(i);
-      String paramName = param.name();
       if (param.variadic()) {
-        variadicName = paramName;
+        variadicName = param.name();
         variadic = new Expression();
 
-      } else if (paramName != null) {
-        names.add(paramName);
-        Node value = param.value();
-        if (value != null) {
-          boundValues.put(paramName, value);
-        }
+      } else if (param.name() != null && param.value() != null) {
+        values[i] = param.value();
+        order[bound++] = i;
       }
     }
 
@@ -124,20 +119,24 @@ public class MixinMatcher {
       if (argName == null) {
         continue;
       }
-      if (!names.contains(argName)) {
+      int index = namedParameter(params, named, argName);
+      if (index == -1) {
         LessException exc = new LessException(argNamedNotFound(argName));
         exc.push(mixinCall);
         throw exc;
       }
-      boundValues.put(argName, arg.value());
-      names.remove(argName);
+      if (values[index] == null) {
+        order[bound++] = index;
+      }
+      values[index] = arg.value();
+      named[index] = true;
     }
 
     // Bind all remaining positional arguments.
+    int next = 0;
     for (int i = 0; i < argSize; i++) {
       Argument arg = args.get(i);
-      String argName = arg.name();
-      if (argName != null) {
+      if (arg.name() != null) {
         continue;
       }
 
@@ -155,10 +154,16 @@ public class MixinMatcher {
         }
       }
 
-      // Positional, assign to one of the remaining named arguments if any.
-      if (!names.isEmpty()) {
-        argName = names.poll();
-        boundValues.put(argName, arg.value());
+      // Positional, assign to the next named parameter not yet bound by name, if any.
+      while (next < paramSize && !unboundName(params.get(next), named[next])) {
+        next++;
+      }
+      if (next < paramSize) {
+        if (values[next] == null) {
+          order[bound++] = next;
+        }
+        values[next] = arg.value();
+        next++;
 
       } else if (variadic != null) {
         variadic.add(arg.value());
@@ -172,11 +177,12 @@ public class MixinMatcher {
 
     // Build the final bindings block.
     Expression arguments = new Expression();
-    Block bindings = new Block(boundValues.size());
+    Block bindings = new Block(bound + 2);
 
-    for (Map.Entry<String, Node> entry : boundValues.entrySet()) {
-      Node value = entry.getValue();
-      bindings.appendNode(ctx.nodeBuilder().buildDefinition(entry.getKey(), value));
+    for (int i = 0; i < bound; i++) {
+      int index = order[i];
+      Node value = values[index];
+      bindings.appendNode(ctx.nodeBuilder().buildDefinition(params.get(index).name(), value));
       arguments.add(value);
     }
 
@@ -193,7 +199,28 @@ public class MixinMatcher {
     }
 
     bindings.appendNode(ctx.nodeBuilder().buildDefinition("@arguments", LessUtils.flatten(arguments)));
-    return new GenericBlock(bindings);
+    return bindings;
+  }
+
+  /**
+   * Returns the index of the named parameter which has not yet been bound
+   * by name, or -1 if none exists.
+   */
+  private static int namedParameter(List<Parameter> params, boolean[] named, String name) {
+    int size = params.size();
+    for (int i = 0; i < size; i++) {
+      if (unboundName(params.get(i), named[i]) && name.equals(params.get(i).name())) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Indicates the parameter takes a value by name and was not yet bound by name.
+   */
+  private static boolean unboundName(Parameter param, boolean named) {
+    return !named && !param.variadic() && param.name() != null;
   }
 
   /**
@@ -0,0 +1,429 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.exec;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.squarespace.less.LessContext;
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.model.Alpha;
+import com.squarespace.less.model.Argument;
+import com.squarespace.less.model.Assignment;
+import com.squarespace.less.model.Block;
+import com.squarespace.less.model.BlockDirective;
+import com.squarespace.less.model.BlockNode;
+import com.squarespace.less.model.CompositeProperty;
+import com.squarespace.less.model.Condition;
+import com.squarespace.less.model.Definition;
+import com.squarespace.less.model.Directive;
+import com.squarespace.less.model.Expression;
+import com.squarespace.less.model.ExpressionList;
+import com.squarespace.less.model.Feature;
+import com.squarespace.less.model.Features;
+import com.squarespace.less.model.FunctionCall;
+import com.squarespace.less.model.Guard;
+import com.squarespace.less.model.Media;
+import com.squarespace.less.model.Mixin;
+import com.squarespace.less.model.MixinCallArgs;
+import com.squarespace.less.model.MixinParams;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.NodeType;
+import com.squarespace.less.model.Operation;
+import com.squarespace.less.model.Parameter;
+import com.squarespace.less.model.Paren;
+import com.squarespace.less.model.Quoted;
+import com.squarespace.less.model.Rule;
+import com.squarespace.less.model.Ruleset;
+import com.squarespace.less.model.Selectors;
+import com.squarespace.less.model.Shorthand;
+import com.squarespace.less.model.Url;
+import com.squarespace.less.model.Variable;
+
+
+/**
+ * Remembers the rules produced by mixin calls with constant arguments, so an
+ * identical call later in the same compile reuses them instead of binding
+ * and evaluating the mixin's body again.
+ *
+ * Only mixins whose output depends on nothing but their arguments are
+ * memoized: every variable referenced by the parameters, guard and body must
+ * be a parameter, "@arguments" or a definition in an enclosing block of the
+ * body, and every function called must be pure. Bodies which call other
+ * mixins, define mixins, import, extend or use detached rulesets are never
+ * memoized, since their output depends on the calling scope.
+ */
+public class MixinMemo {
+
+  private static final String ARGUMENTS = "@arguments";
+
+  private final Map<Mixin, Boolean> memoizable = new IdentityHashMap<>();
+
+  private final Map<Key, Block> results = new HashMap<>();
+
+  /**
+   * Returns the key for a call of the original mixin with the evaluated
+   * arguments, or null if the call cannot be memoized.
+   */
+  public Key key(LessContext ctx, Mixin original, MixinCallArgs args, boolean important, boolean strictMath) {
+    if (args != null) {
+      for (Argument arg : args.args()) {
+        Node value = arg.value();
+        if (value.needsEval() || value.type() == NodeType.DETACHED_RULESET) {
+          return null;
+        }
+      }
+    }
+
+    Boolean flag = memoizable.get(original);
+    if (flag == null) {
+      flag = new Analyzer(ctx).mixin(original);
+      memoizable.put(original, flag);
+    }
+    return flag ? new Key(original, args, important, strictMath) : null;
+  }
+
+  /**
+   * Returns a copy of the rules produced by an earlier call with the same key,
+   * or null.
+   */
+  public Block get(Key key) {
+    Block block = results.get(key);
+    return block == null ? null : copy(block);
+  }
+
+  /**
+   * Records a copy of the rules produced by a call.
+   */
+  public void put(Key key, Block block) {
+    results.put(key, copy(block));
+  }
+
+  /**
+   * Number of memoized calls.
+   */
+  public int size() {
+    return results.size();
+  }
+
+  /**
+   * Copies the block and every block node nested in it, so the rules handed to
+   * one call site are never shared with another or with the memo. Other nodes
+   * are shared, since evaluating them produces new nodes instead of modifying them.
+   */
+  private static Block copy(Block block) {
+    Block result = block.copy();
+    FlexList<Node> rules = result.rules();
+    for (int i = 0; i < rules.size(); i++) {
+      Node node = rules.get(i);
+      BlockNode copy;
+      switch (node.type()) {
+
+        case BLOCK_DIRECTIVE:
+          copy = ((BlockDirective)node).copy();
+          break;
+
+        case MEDIA:
+          copy = ((Media)node).copy();
+          break;
+
+        case RULESET:
+          copy = ((Ruleset)node).copy();
+          break;
+
+        default:
+          continue;
+      }
+      copy.setBlock(copy(copy.block()));
+      result.set(i, copy);
+    }
+    return result;
+  }
+
+  /**
+   * Identifies a call by the identity of the original mixin, the structure of
+   * its arguments and the flags affecting evaluation.
+   */
+  public static class Key {
+
+    private final Mixin mixin;
+
+    private final MixinCallArgs args;
+
+    private final boolean important;
+
+    private final boolean strictMath;
+
+    private final int hashCode;
+
+    Key(Mixin mixin, MixinCallArgs args, boolean important, boolean strictMath) {
+      this.mixin = mixin;
+      this.args = args;
+      this.important = important;
+      this.strictMath = strictMath;
+
+      // Nodes cannot be hashed, but structurally equal nodes have the same repr.
+      int hash = System.identityHashCode(mixin);
+      hash = 31 * hash + (args == null ? 0 : args.repr().hashCode());
+      hash = 31 * hash + (important ? 1 : 0);
+      this.hashCode = 31 * hash + (strictMath ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key)obj;
+      return mixin == other.mixin
+          && important == other.important
+          && strictMath == other.strictMath
+          && (args == null ? other.args == null : args.equals(other.args));
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+  }
+
+  /**
+   * Checks a mixin's parameters, guard and body for references outside its
+   * own scope. Anything not understood here makes the mixin ineligible.
+   */
+  private static class Analyzer {
+
+    private final LessContext ctx;
+
+    private final Deque<Set<String>> scopes = new ArrayDeque<>();
+
+    Analyzer(LessContext ctx) {
+      this.ctx = ctx;
+    }
+
+    boolean mixin(Mixin mixin) {
+      Set<String> bound = new HashSet<>();
+      bound.add(ARGUMENTS);
+      MixinParams params = mixin.params();
+      if (params != null) {
+        for (Parameter param : params.params()) {
+          if (param.name() != null) {
+            bound.add(param.name());
+          }
+          if (param.value() != null && !value(param.value())) {
+            return false;
+          }
+        }
+      }
+      scopes.push(bound);
+
+      Guard guard = mixin.guard();
+      if (guard != null && !value(guard)) {
+        return false;
+      }
+      return block(mixin.block());
+    }
+
+    private boolean block(Block block) {
+      FlexList<Node> rules = block.rules();
+      int size = rules.size();
+      Set<String> defined = new HashSet<>();
+      for (int i = 0; i < size; i++) {
+        Node node = rules.get(i);
+        if (node instanceof Definition) {
+          defined.add(((Definition)node).name());
+        }
+      }
+
+      scopes.push(defined);
+      try {
+        for (int i = 0; i < size; i++) {
+          if (!rule(rules.get(i))) {
+            return false;
+          }
+        }
+        return true;
+      } finally {
+        scopes.pop();
+      }
+    }
+
+    private boolean rule(Node node) {
+      switch (node.type()) {
+
+        case BLOCK_DIRECTIVE:
+          return block(((BlockDirective)node).block());
+
+        case COMMENT:
+          return true;
+
+        case DEFINITION:
+          return value(((Definition)node).value());
+
+        case DIRECTIVE:
+          return value(((Directive)node).value());
+
+        case MEDIA:
+        {
+          Media media = (Media)node;
+          return (media.features() == null || value(media.features())) && block(media.block());
+        }
+
+        case RULE:
+        {
+          Rule rule = (Rule)node;
+          return value(rule.property()) && value(rule.value());
+        }
+
+        case RULESET:
+        {
+          Ruleset ruleset = (Ruleset)node;
+          Selectors selectors = ruleset.selectors();
+          if (selectors.needsEval() || selectors.guard() != null) {
+            return false;
+          }
+          return block(ruleset.block());
+        }
+
+        default:
+          return false;
+      }
+    }
+
+    private boolean value(Node node) {
+      if (node == null) {
+        return true;
+      }
+      switch (node.type()) {
+
+        case ANONYMOUS:
+        case COLOR:
+        case DIMENSION:
+        case FALSE:
+        case KEYWORD:
+        case PROPERTY:
+        case RATIO:
+        case TRUE:
+        case UNICODE_RANGE:
+          return true;
+
+        case ALPHA:
+          return value(((Alpha)node).value());
+
+        case ASSIGNMENT:
+          return value(((Assignment)node).value());
+
+        case CONDITION:
+        {
+          Condition cond = (Condition)node;
+          return value(cond.left()) && value(cond.right());
+        }
+
+        case COMPOSITE_PROPERTY:
+          return values(((CompositeProperty)node).segments());
+
+        case EXPRESSION:
+          return values(((Expression)node).values());
+
+        case EXPRESSION_LIST:
+          return values(((ExpressionList)node).expressions());
+
+        case FEATURE:
+        {
+          Feature feature = (Feature)node;
+          return value(feature.property()) && value(feature.value());
+        }
+
+        case FEATURES:
+          return values(((Features)node).features());
+
+        case FUNCTION_CALL:
+        {
+          FunctionCall call = (FunctionCall)node;
+          String name = call.name();
+          if (!ctx.isPureFunction(name) && ctx.findFunction(name) != null) {
+            return false;
+          }
+          return values(call.args());
+        }
+
+        case GUARD:
+          return values(((Guard)node).conditions());
+
+        case OPERATION:
+        {
+          Operation op = (Operation)node;
+          return value(op.left()) && value(op.right());
+        }
+
+        case PAREN:
+          return value(((Paren)node).value());
+
+        case QUOTED:
+          return values(((Quoted)node).parts());
+
+        case SHORTHAND:
+        {
+          Shorthand shorthand = (Shorthand)node;
+          return value(shorthand.left()) && value(shorthand.right());
+        }
+
+        case URL:
+          return value(((Url)node).value());
+
+        case VARIABLE:
+        {
+          Variable var = (Variable)node;
+          return !var.indirect() && !var.ruleset() && bound(var.name());
+        }
+
+        default:
+          return false;
+      }
+    }
+
+    private boolean values(List<? extends Node> nodes) {
+      if (nodes == null) {
+        return true;
+      }
+      for (Node node : nodes) {
+        if (!value(node)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean bound(String name) {
+      for (Set<String> scope : scopes) {
+        if (scope.contains(name)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+  }
+
+}
@@ -25,6 +25,7 @@ import com.squarespace.less.model.Block;
 import com.squarespace.less.model.Mixin;
 import com.squarespace.less.model.MixinCall;
 import com.squarespace.less.model.MixinCallArgs;
+import com.squarespace.less.model.MixinIndex;
 import com.squarespace.less.model.MixinParams;
 import com.squarespace.less.model.Node;
 import com.squarespace.less.model.Ruleset;
@@ -64,6 +65,18 @@ public class MixinResolver {
     this.results = new ArrayList<>(3);
   }
 
+  /**
+   * Releases references to the most recent call.
+   */
+  public void clear() {
+    this.matcher = null;
+    this.args = null;
+    this.callPath = null;
+    this.callPathLength = 0;
+    this.maxIndex = 0;
+    this.results = null;
+  }
+
   public List<MixinMatch> matches() {
     return results;
   }
@@ -76,8 +89,9 @@ public class MixinResolver {
   }
 
   /**
-   * Scan the block and match each found {@link Mixin} or {@link Ruleset}'s path
-   * against this {@link MixinCall}'s path starting at position {@code index}.
+   * Match the path of each {@link Mixin} or {@link Ruleset} in the block's
+   * {@link MixinIndex} against this {@link MixinCall}'s path starting at
+   * position {@code index}.
    */
   protected boolean match(int index, Block block) throws LessException {
     if (index >= callPathLength) {
@@ -89,15 +103,13 @@ public class MixinResolver {
       return false;
     }
 
-    // TODO: future mixin resolution optimization to cache ruleset/mixins in
-    // a separate field on the block to reduce size of these inner loops.
-    // this should improve execution times for large stylesheets with many
-    // imports.
+    // Only visit the rulesets and mixins whose path begins with the same
+    // segment as the remainder of the call's path.
+    int[] candidates = block.mixinIndex().candidates(callPath, index);
 
     boolean matched = false;
-    int size = rules.size();
-    for (int i = 0; i < size; i++) {
-      Node node = rules.get(i);
+    for (int i = 0; i < candidates.length; i++) {
+      Node node = rules.get(candidates[i]);
       if (node instanceof Ruleset) {
         matched |= matchRuleset(index, (Ruleset)node);
 
@@ -120,7 +132,7 @@ public class MixinResolver {
     Ruleset original = (Ruleset)ruleset.original();
 
     /// Ignore recursive entries into ruleset mixins.
-    if (original.evaluating()) {
+    if (matcher.callEnv().state().evaluating(original)) {
       return false;
     }
 
@@ -171,9 +183,9 @@ public class MixinResolver {
     ExecEnv env = matcher.callEnv().copy();
 
     // Append the mixin definitions closure frames, if any.
-    ExecEnv defEnv = mixin.closure();
+    ExecEnv defEnv = env.state().closure(mixin.original());
     if (defEnv != null) {
-      env.append(defEnv.frames().copy());
+      env.append(defEnv.frames());
     }
 
     params = (MixinParams) params.eval(env);
@@ -199,6 +211,11 @@ public class MixinResolver {
       return -1;
     }
 
+    // Paths are interned, so a full match is usually an identity match.
+    if (index == 0 && other == callPath) {
+      return 0;
+    }
+
     int j = 0;
     while (j < otherLength) {
       if (callPath.charAt(index) != other.charAt(j)) {
@@ -181,7 +181,7 @@ public class RenderEnv {
     if (blockType.equals(NodeType.BLOCK_DIRECTIVE)) {
       frame.pushEmptySelectors();
     } else if (selectors != null) {
-      frame.mergeSelectors(selectors);
+      frame.mergeSelectors(selectors, ctx.governor());
     } else if (features != null) {
       frame.mergeFeatures(features);
     }
@@ -16,6 +16,7 @@
 
 package com.squarespace.less.exec;
 
+import com.squarespace.less.LessException;
 import com.squarespace.less.core.Buffer;
 import com.squarespace.less.core.Constants;
 import com.squarespace.less.model.BlockNode;
@@ -100,14 +101,15 @@ public class RenderFrame {
   }
 
   /**
-   * Combines this set of {@link Selectors} with its parent's.
+   * Combines this set of {@link Selectors} with its parent's, counting each
+   * generated selector against the governor's limits.
    */
-  public void mergeSelectors(Selectors current) {
+  public void mergeSelectors(Selectors current, ResourceGovernor governor) throws LessException {
     Selectors ancestors = (parent == null) ? Constants.EMPTY_SELECTORS : parent.selectors();
     if (current == null || current.isEmpty()) {
       this.selectors = ancestors;
     } else {
-      this.selectors = SelectorUtils.combine(ancestors, current);
+      this.selectors = SelectorUtils.combine(ancestors, current, governor);
     }
   }
 
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.exec;
+
+import static com.squarespace.less.core.ExecuteErrorMaker.compileCancelled;
+import static com.squarespace.less.core.ExecuteErrorMaker.compileTimeLimit;
+import static com.squarespace.less.core.ExecuteErrorMaker.evaluationLimit;
+import static com.squarespace.less.core.ExecuteErrorMaker.outputSizeLimit;
+
+import java.util.concurrent.TimeUnit;
+
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+
+
+/**
+ * Enforces the resource limits for a single compile: a wall-clock deadline,
+ * cooperative cancellation, the number of nodes evaluated and the size of
+ * the output. The compiler calls the cheap {@link #tick()} and
+ * {@link #output(int)} methods at regular points, and the clock and
+ * cancellation flag are only consulted every {@link #CHECK_INTERVAL} ticks.
+ */
+public class ResourceGovernor {
+
+  /**
+   * Number of ticks between checks of the clock and cancellation flag.
+   */
+  public static final int CHECK_INTERVAL = 256;
+
+  private final long timeLimit;
+
+  private final long evaluationLimit;
+
+  private final long outputSizeLimit;
+
+  private volatile boolean cancelled;
+
+  private long deadline;
+
+  private boolean started;
+
+  private long evaluated;
+
+  private long outputSize;
+
+  private int untilCheck = CHECK_INTERVAL;
+
+  public ResourceGovernor(LessOptions opts) {
+    this.timeLimit = opts.compileTimeLimit();
+    this.evaluationLimit = opts.evaluationLimit();
+    this.outputSizeLimit = opts.outputSizeLimit();
+  }
+
+  /**
+   * Starts the clock, if not already started, and checks the limits.
+   */
+  public void start() throws LessException {
+    if (!started) {
+      started = true;
+      deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimit);
+    }
+    check();
+  }
+
+  /**
+   * Clears the clock, counters and cancellation flag, to reuse this instance
+   * for another compile.
+   */
+  public void reset() {
+    cancelled = false;
+    started = false;
+    deadline = 0;
+    evaluated = 0;
+    outputSize = 0;
+    untilCheck = CHECK_INTERVAL;
+  }
+
+  /**
+   * Requests that the compile stop at the next check. Can be called from
+   * any thread.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Indicates whether the compile has been cancelled.
+   */
+  public boolean cancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Number of nodes evaluated so far.
+   */
+  public long evaluated() {
+    return evaluated;
+  }
+
+  /**
+   * Number of characters output so far.
+   */
+  public long outputSize() {
+    return outputSize;
+  }
+
+  /**
+   * Counts one evaluated node.
+   */
+  public void tick() throws LessException {
+    tick(1);
+  }
+
+  /**
+   * Counts {@code count} evaluated nodes.
+   */
+  public void tick(int count) throws LessException {
+    evaluated += count;
+    if (evaluationLimit > 0 && evaluated > evaluationLimit) {
+      throw new LessException(evaluationLimit(evaluationLimit));
+    }
+    untilCheck -= count;
+    if (untilCheck <= 0) {
+      untilCheck = CHECK_INTERVAL;
+      check();
+    }
+  }
+
+  /**
+   * Counts {@code size} characters of output.
+   */
+  public void output(int size) throws LessException {
+    outputSize += size;
+    if (outputSizeLimit > 0 && outputSize > outputSizeLimit) {
+      throw new LessException(outputSizeLimit(outputSizeLimit));
+    }
+  }
+
+  /**
+   * Throws if the compile has been cancelled or its deadline has passed.
+   */
+  public void check() throws LessException {
+    if (cancelled) {
+      throw new LessException(compileCancelled());
+    }
+    if (started && timeLimit > 0 && System.nanoTime() - deadline > 0) {
+      throw new LessException(compileTimeLimit(timeLimit));
+    }
+  }
+
+}
@@ -22,8 +22,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import com.squarespace.less.LessException;
 import com.squarespace.less.core.Buffer;
 import com.squarespace.less.core.CartesianProduct;
+import com.squarespace.less.core.LessInternalException;
 import com.squarespace.less.model.Combinator;
 import com.squarespace.less.model.ExtendList;
 import com.squarespace.less.model.Mixin;
@@ -53,6 +55,20 @@ public class SelectorUtils {
    *    the list of ancestors, and then return the cartesian product.
    */
   public static Selectors combine(Selectors ancestors, Selectors current) {
+    try {
+      return combine(ancestors, current, null);
+    } catch (LessException e) {
+      // Only the governor can raise an error.
+      throw new LessInternalException("Serious error: selector combine failed", e);
+    }
+  }
+
+  /**
+   * Combines the ancestor and current selectors as above, counting each
+   * generated selector against the governor's limits. The governor may be null.
+   */
+  public static Selectors combine(Selectors ancestors, Selectors current, ResourceGovernor governor)
+      throws LessException {
     if (ancestors.isEmpty()) {
       return filter(current);
     }
@@ -77,7 +93,7 @@ public class SelectorUtils {
 
         inputs.add(ancestors.selectors());
         inputs.add(Arrays.asList(child));
-        flatten(inputs, result, extendList);
+        flatten(inputs, result, extendList, governor);
         continue;
       }
 
@@ -103,7 +119,7 @@ public class SelectorUtils {
         inputs.add(Arrays.asList(temp));
       }
 
-      flatten(inputs, result, extendList);
+      flatten(inputs, result, extendList, governor);
     }
     return result;
   }
@@ -112,9 +128,13 @@ public class SelectorUtils {
    * Generates a cartesian product from {@code selectors} and appends the flattened
    * selectors {@code result}.
    */
-  public static void flatten(List<List<Selector>> selectors, Selectors result, ExtendList extendList) {
+  public static void flatten(List<List<Selector>> selectors, Selectors result, ExtendList extendList,
+      ResourceGovernor governor) throws LessException {
     CartesianProduct<Selector> product = new CartesianProduct<>(selectors);
     while (product.hasNext()) {
+      if (governor != null) {
+        governor.tick();
+      }
       Selector flat = new Selector();
       for (Selector tmp : product.next()) {
         for (SelectorPart elem : tmp.parts()) {
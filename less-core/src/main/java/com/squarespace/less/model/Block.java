@@ -16,9 +16,6 @@
 
 package com.squarespace.less.model;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import com.squarespace.less.core.Buffer;
 import com.squarespace.less.core.FlexList;
 import com.squarespace.less.core.LessUtils;
@@ -88,11 +85,16 @@ public class Block extends BaseNode {
   protected Directive charset;
 
   /**
-   * Variable cache. Since variables can be dynamically added to a block
-   * during execution, periodically this cache needs to be rebuilt so that
-   * these new variables are found during evaluation.
+   * Variable cache. Rules added to the block register their definitions
+   * directly; the cache is only rebuilt when a definition it holds is removed.
+   */
+  protected VariableTable variables;
+
+  /**
+   * Index of the mixins and rulesets in this block, built on first use by
+   * mixin resolution and dropped whenever the rules change.
    */
-  protected Map<String, Definition> variables;
+  protected MixinIndex mixinIndex;
 
   /**
    * Initial flags controlling this block. On creation we need to build the
@@ -142,6 +144,11 @@ public class Block extends BaseNode {
   public void prependNode(Node node) {
     setFlags(node);
     rules.splice(0, 0, new Node[] { node });
+    mixinIndex = null;
+    if (variablesBuilt()) {
+      variables.shift(0, 1);
+      register(node, 0);
+    }
   }
 
   /**
@@ -150,6 +157,10 @@ public class Block extends BaseNode {
   public void appendNode(Node node) {
     setFlags(node);
     rules.append(node);
+    mixinIndex = null;
+    if (variablesBuilt()) {
+      register(node, rules.size() - 1);
+    }
   }
 
   /**
@@ -157,8 +168,13 @@ public class Block extends BaseNode {
    * the tail of this instance.
    */
   public void appendBlock(Block block) {
+    int start = rules.size();
     flags |= block.flags;
     rules.append(block.rules);
+    mixinIndex = null;
+    if (variablesBuilt()) {
+      registerAll(block.rules, start);
+    }
   }
 
   /**
@@ -171,13 +187,38 @@ public class Block extends BaseNode {
   /**
    * Shortcut to splice {@code other} Block's rules into this block.
    * Returns the number of rules that were spliced into place.
+   *
+   * Definitions among the spliced rules are registered in the variable
+   * cache, which is only rebuilt if one of the removed rules was a
+   * definition it holds.
    */
   public int splice(int start, int num, Block other) {
     FlexList<Node> otherRules = other.rules();
     rules.splice(start, num, otherRules);
+    mixinIndex = null;
+    if (variablesBuilt()) {
+      if (variables.defines(start, start + num)) {
+        flags |= FLAG_REBUILD_VARS;
+      } else {
+        variables.shift(start + num, otherRules.size() - num);
+        registerAll(otherRules, start);
+      }
+    }
     return otherRules.size();
   }
 
+  /**
+   * Replaces the rule at the given index, keeping the mixin index if the new
+   * rule can be found through it. The variable cache is left unchanged.
+   */
+  public void set(int index, Node node) {
+    rules.set(index, node);
+    MixinIndex current = mixinIndex;
+    if (current != null && !current.covers(index, node)) {
+      mixinIndex = null;
+    }
+  }
+
   /**
    * Indicates whether block is marked for deferred evaluation.
    */
@@ -250,6 +291,31 @@ public class Block extends BaseNode {
    */
   public void resetVariableCache() {
     flags |= FLAG_REBUILD_VARS;
+    mixinIndex = null;
+  }
+
+  /**
+   * Returns the index of the mixins and rulesets in this block, building
+   * it if the rules changed since it was last used.
+   */
+  public MixinIndex mixinIndex() {
+    MixinIndex result = mixinIndex;
+    if (result == null) {
+      result = MixinIndex.build(rules);
+      mixinIndex = result;
+    }
+    return result;
+  }
+
+  /**
+   * Trims the rule list to its exact size and drops the variable cache and
+   * mixin index, which are rebuilt on the next lookup.
+   */
+  public void compact() {
+    rules.compact();
+    variables = null;
+    mixinIndex = null;
+    flags |= FLAG_REBUILD_VARS;
   }
 
   /**
@@ -269,27 +335,45 @@ public class Block extends BaseNode {
    */
   private void buildVariables() {
     if (variables == null) {
-      variables = new HashMap<>();
+      variables = new VariableTable();
     } else {
       variables.clear();
     }
-    int size = rules.size();
+    registerAll(rules, 0);
+    flags &= ~FLAG_REBUILD_VARS;
+  }
+
+  /**
+   * Indicates the variable cache is built and current, so added rules must
+   * be registered in it.
+   */
+  private boolean variablesBuilt() {
+    return variables != null && (flags & FLAG_REBUILD_VARS) == 0;
+  }
+
+  /**
+   * Registers the definitions among the rules, the first of which is at the
+   * given position in this block.
+   */
+  private void registerAll(FlexList<Node> nodes, int start) {
+    int size = nodes.size();
     for (int i = 0; i < size; i++) {
-      Node node = rules.get(i);
-      if (!node.type().equals(NodeType.DEFINITION)) {
-        continue;
-      }
-      Definition def = (Definition)node;
-      variables.put(def.name(), def);
+      register(nodes.get(i), start + i);
+    }
+  }
+
+  private void register(Node node, int position) {
+    if (node.type().equals(NodeType.DEFINITION)) {
+      variables.put((Definition)node, position);
     }
-    flags &= ~FLAG_REBUILD_VARS;
   }
 
   /**
-   * Create a shallow copy of this block.
+   * Create a shallow copy of this block. The variable cache is not shared,
+   * so the copy will rebuild its own on first use.
    */
   public Block copy() {
-    return new Block(rules.copy(), flags);
+    return new Block(rules.copy(), (byte)(flags | FLAG_REBUILD_VARS));
   }
 
   /**
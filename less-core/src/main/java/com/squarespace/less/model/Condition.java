@@ -72,6 +72,20 @@ public class Condition extends BaseNode {
     this.negate = negate;
   }
 
+  /**
+   * Returns the boolean operator.
+   */
+  public Operator operator() {
+    return operator;
+  }
+
+  /**
+   * Indicates whether the result of the evaluation is negated.
+   */
+  public boolean negate() {
+    return negate;
+  }
+
   /**
    * Returns the left operand.
    */
@@ -25,6 +25,7 @@ import com.squarespace.less.LessException;
 import com.squarespace.less.core.Buffer;
 import com.squarespace.less.core.LessInternalException;
 import com.squarespace.less.exec.ExecEnv;
+import com.squarespace.less.exec.ExecState;
 
 
 // An experimental feature is to detect and skip circular references,
@@ -69,11 +70,6 @@ public class Definition extends BaseNode {
    */
   protected final Node value;
 
-  /**
-   * Flag to detect circular references and raise an error.
-   */
-  protected boolean evaluating;
-
   /**
    * Flag indicating the definition was marked important.
    */
@@ -137,14 +133,6 @@ public class Definition extends BaseNode {
     return important;
   }
 
-  /**
-   * Indicates whether this definition is currently being evaluated. Helps
-   * detect and skip over circular references.
-   */
-  public boolean evaluating() {
-    return evaluating;
-  }
-
   public Path fileName() {
     return fileName;
   }
@@ -168,14 +156,19 @@ public class Definition extends BaseNode {
     // TODO: future pragma to detect and skip circular definitions,
     // looking in a higher scope. remove the following line.
     // see ExecEnv.resolveDefinition
-    if (evaluating) {
+    ExecState state = env.state();
+    if (!state.enter(this)) {
       throw new LessException(varCircularRef(env));
     }
 
-    // Mark as 'evaluating' so that we can detect circular references.
-    evaluating = true;
-    Node result = value.eval(env);
-    evaluating = false;
+    // Mark as 'evaluating' so that we can detect circular references. The
+    // mark is kept on the evaluation state since this node may be shared.
+    Node result = null;
+    try {
+      result = value.eval(env);
+    } finally {
+      state.exit(this);
+    }
     if (important) {
       env.setImportantFlag(true);
     }
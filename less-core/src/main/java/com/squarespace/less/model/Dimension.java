@@ -168,7 +168,7 @@ public class Dimension extends BaseNode {
         throw new LessException(expectedMathOp(op));
     }
 
-    return new Dimension(result, newUnit);
+    return ValueCache.dimension(result, newUnit);
   }
 
   @Override
@@ -52,6 +52,13 @@ public class ExtendList extends BaseNode {
     this.atRuleLevel = atRuleLevel;
   }
 
+  /**
+   * Indicates whether this extend list appeared at the rule level.
+   */
+  public boolean atRuleLevel() {
+    return atRuleLevel;
+  }
+
   /**
    * Indicates whether this extend list is empty.
    */
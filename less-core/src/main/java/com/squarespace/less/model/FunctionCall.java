@@ -95,6 +95,13 @@ public class FunctionCall extends BaseNode {
     return name;
   }
 
+  /**
+   * Indicates it is known the function has no implementation.
+   */
+  public boolean noImplementation() {
+    return noImplementation;
+  }
+
   /**
    * Returns the arguments to the function call.
    */
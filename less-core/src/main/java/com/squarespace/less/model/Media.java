@@ -94,6 +94,17 @@ public class Media extends BlockNode {
     return result;
   }
 
+  /**
+   * Copies an evaluated media node, keeping its features.
+   */
+  public Media copy() {
+    Media result = new Media(features, block.copy());
+    result.copyBase(this);
+    result.fileName = fileName;
+    result.extendIndex = extendIndex;
+    return result;
+  }
+
   /**
    * Returns the features attached to this media node.
    */
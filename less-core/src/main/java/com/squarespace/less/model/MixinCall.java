@@ -17,6 +17,7 @@
 package com.squarespace.less.model;
 
 import static com.squarespace.less.core.LessUtils.safeEquals;
+import static com.squarespace.less.core.StringInterner.intern;
 
 import java.nio.file.Path;
 
@@ -62,7 +63,7 @@ public class MixinCall extends BaseNode {
     this.selector = selector;
     this.args = args;
     this.important = important;
-    this.selectorPath = SelectorUtils.renderSelector(selector);
+    this.selectorPath = intern(SelectorUtils.renderSelector(selector));
   }
 
   /**
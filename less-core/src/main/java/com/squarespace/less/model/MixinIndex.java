@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.squarespace.less.core.FlexList;
+
+
+/**
+ * Index of the {@link Mixin} and {@link Ruleset} nodes in a {@link Block},
+ * mapping the first segment of each node's mixin path to the positions of
+ * the nodes in the block, in rule order.
+ *
+ * A segment runs from the start of a path up to the next '.' or '#'. A
+ * mixin path can only match a call's path if both begin with the same
+ * segment, so resolving a call only needs to look at the nodes under the
+ * call's current segment.
+ *
+ * The index is immutable; the block drops it whenever its rules change.
+ */
+public class MixinIndex {
+
+  private static final int[] EMPTY = new int[0];
+
+  private final Map<String, int[]> positions;
+
+  private MixinIndex(Map<String, int[]> positions) {
+    this.positions = positions;
+  }
+
+  /**
+   * Builds the index of the rules.
+   */
+  public static MixinIndex build(FlexList<Node> rules) {
+    Map<String, int[]> positions = new HashMap<>();
+    Map<String, Integer> counts = new HashMap<>();
+    int size = rules.size();
+    for (int i = 0; i < size; i++) {
+      Node node = rules.get(i);
+      if (node instanceof Mixin) {
+        add(positions, counts, segment(((Mixin)node).name(), 0), i);
+
+      } else if (node instanceof Ruleset) {
+        Ruleset ruleset = (Ruleset)node;
+        if (!ruleset.hasMixinPath()) {
+          continue;
+        }
+        List<Selector> selectors = ruleset.selectors().selectors();
+        for (int j = 0; j < selectors.size(); j++) {
+          add(positions, counts, segment(selectors.get(j).mixinPath(), 0), i);
+        }
+      }
+    }
+
+    // Trim each array to its exact size.
+    for (Map.Entry<String, int[]> entry : positions.entrySet()) {
+      int count = counts.get(entry.getKey());
+      int[] array = entry.getValue();
+      if (array.length != count) {
+        entry.setValue(Arrays.copyOf(array, count));
+      }
+    }
+    return new MixinIndex(positions);
+  }
+
+  /**
+   * Returns the positions of the nodes whose mixin path begins with the
+   * segment of {@code path} starting at {@code index}.
+   */
+  public int[] candidates(String path, int index) {
+    int[] result = positions.get(segment(path, index));
+    return result == null ? EMPTY : result;
+  }
+
+  /**
+   * Indicates the node at the given position is reachable through each of its
+   * segments, so it can replace the node which was indexed at that position.
+   */
+  public boolean covers(int position, Node node) {
+    if (node instanceof Mixin) {
+      return contains(segment(((Mixin)node).name(), 0), position);
+    }
+    if (node instanceof Ruleset) {
+      Ruleset ruleset = (Ruleset)node;
+      if (!ruleset.hasMixinPath()) {
+        return true;
+      }
+      for (Selector selector : ruleset.selectors().selectors()) {
+        if (!contains(segment(selector.mixinPath(), 0), position)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the segment of the path starting at {@code index}, or null if the
+   * path is null or too short.
+   */
+  static String segment(String path, int index) {
+    if (path == null || index >= path.length()) {
+      return null;
+    }
+    int length = path.length();
+    for (int i = index + 1; i < length; i++) {
+      char ch = path.charAt(i);
+      if (ch == '.' || ch == '#') {
+        return path.substring(index, i);
+      }
+    }
+    return index == 0 ? path : path.substring(index);
+  }
+
+  private boolean contains(String key, int position) {
+    if (key == null) {
+      return true;
+    }
+    int[] array = positions.get(key);
+    return array != null && Arrays.binarySearch(array, position) >= 0;
+  }
+
+  private static void add(Map<String, int[]> positions, Map<String, Integer> counts, String key, int position) {
+    if (key == null) {
+      return;
+    }
+    int[] array = positions.get(key);
+    if (array == null) {
+      positions.put(key, new int[] { position });
+      counts.put(key, 1);
+      return;
+    }
+
+    // A ruleset may list several selectors with the same segment.
+    int count = counts.get(key);
+    if (array[count - 1] == position) {
+      return;
+    }
+    if (count == array.length) {
+      array = Arrays.copyOf(array, count * 2);
+      positions.put(key, array);
+    }
+    array[count] = position;
+    counts.put(key, count + 1);
+  }
+
+}
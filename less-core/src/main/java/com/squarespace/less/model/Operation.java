@@ -94,6 +94,13 @@ public class Operation extends BaseNode {
     return right;
   }
 
+  /**
+   * Indicates whether this operation is a sub-expression wrapped in parenthesis.
+   */
+  public boolean isSubExpression() {
+    return isSubExpression;
+  }
+
   /**
    * Indicates whether this operation requires strict math mode to evaluate.
    */
@@ -216,7 +223,7 @@ public class Operation extends BaseNode {
   private Node cast(Node node) {
     if (node instanceof Keyword) {
       Keyword kwd = (Keyword)node;
-      RGBColor color = RGBColor.fromName(kwd.value());
+      RGBColor color = ValueCache.color(kwd.value());
       return color == null ? kwd : color;
     }
     return node;
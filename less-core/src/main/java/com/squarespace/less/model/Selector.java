@@ -17,6 +17,7 @@
 package com.squarespace.less.model;
 
 import static com.squarespace.less.core.LessUtils.safeEquals;
+import static com.squarespace.less.core.StringInterner.intern;
 
 import java.util.List;
 
@@ -308,7 +309,7 @@ public class Selector extends BaseNode {
    */
   private void buildMixinPath() {
     if ((flags & FLAG_MIXIN_PATH_BUILT) == 0) {
-      this.mixinPath = SelectorUtils.renderSelector(this);
+      this.mixinPath = intern(SelectorUtils.renderSelector(this));
       flags |= FLAG_MIXIN_PATH_BUILT;
     }
   }
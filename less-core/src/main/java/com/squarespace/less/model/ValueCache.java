@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.model;
+
+
+/**
+ * Bounded flyweight tables for immutable value nodes produced during
+ * evaluation. Function calls and operations tend to produce the same small
+ * set of dimensions, keywords and named colors over and over, so handing
+ * back a shared instance avoids allocating a fresh node for each result.
+ *
+ * Like {@link com.squarespace.less.core.StringInterner} each value hashes
+ * to a single slot and a colliding value replaces the previous one, so the
+ * tables never grow and need no locking. Races only cause a missed share.
+ *
+ * Nodes built by the parser are never shared since each carries its own
+ * source position.
+ */
+public class ValueCache {
+
+  /**
+   * Number of slots in each table.
+   */
+  public static final int SIZE = 4096;
+
+  private static final int MASK = SIZE - 1;
+
+  private static final Dimension[] DIMENSIONS = new Dimension[SIZE];
+
+  private static final Keyword[] KEYWORDS = new Keyword[SIZE];
+
+  private static final Anonymous[] ANONYMOUS = new Anonymous[SIZE];
+
+  private static final RGBColor[] COLORS = new RGBColor[SIZE];
+
+  private ValueCache() {
+  }
+
+  /**
+   * Returns a shared dimension with no unit.
+   */
+  public static Dimension dimension(double value) {
+    return dimension(value, null);
+  }
+
+  /**
+   * Returns a shared dimension with the given value and unit. Units are
+   * compared by identity, so custom units are shared only with themselves.
+   */
+  public static Dimension dimension(double value, Unit unit) {
+    long bits = Double.doubleToLongBits(value);
+    int index = slot((int)(bits ^ (bits >>> 32)) * 31 + (unit == null ? 0 : unit.hashCode()));
+    Dimension existing = DIMENSIONS[index];
+    if (existing != null && existing.unit == unit && Double.doubleToLongBits(existing.value) == bits) {
+      return existing;
+    }
+    Dimension result = new Dimension(value, unit);
+    DIMENSIONS[index] = result;
+    return result;
+  }
+
+  /**
+   * Returns a shared keyword with the given value.
+   */
+  public static Keyword keyword(String value) {
+    int index = slot(value.hashCode());
+    Keyword existing = KEYWORDS[index];
+    if (existing != null && existing.value().equals(value)) {
+      return existing;
+    }
+    Keyword result = new Keyword(value);
+    KEYWORDS[index] = result;
+    return result;
+  }
+
+  /**
+   * Returns a shared anonymous node with the given value.
+   */
+  public static Anonymous anonymous(String value) {
+    int index = slot(value.hashCode());
+    Anonymous existing = ANONYMOUS[index];
+    if (existing != null && existing.value().equals(value)) {
+      return existing;
+    }
+    Anonymous result = new Anonymous(value);
+    ANONYMOUS[index] = result;
+    return result;
+  }
+
+  /**
+   * Returns a shared color for the given color name, or null if the name
+   * is not a color. Callers must {@link RGBColor#copy()} the result before
+   * modifying it.
+   */
+  public static RGBColor color(String name) {
+    int index = slot(name.hashCode());
+    RGBColor existing = COLORS[index];
+    if (existing instanceof KeywordColor) {
+      if (((KeywordColor)existing).keyword().equals(name)) {
+        return existing;
+      }
+    } else if (existing != null && name.equals(Colors.colorToName(existing))) {
+      return existing;
+    }
+    RGBColor result = RGBColor.fromName(name);
+    if (result != null) {
+      COLORS[index] = result;
+    }
+    return result;
+  }
+
+  private static int slot(int hash) {
+    return (hash ^ (hash >>> 16)) & MASK;
+  }
+
+}
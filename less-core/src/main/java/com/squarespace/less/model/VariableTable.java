@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.model;
+
+import java.util.Arrays;
+
+
+/**
+ * Variable table of a {@link Block}, mapping each variable name to the last
+ * {@link Definition} of that name in the block's rules.
+ *
+ * Entries are kept in parallel arrays using open addressing with linear
+ * probing, and record the position of the definition within the block so
+ * rules inserted later can be registered without rescanning the block:
+ * a definition only replaces an entry which precedes it.
+ */
+class VariableTable {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private String[] names;
+
+  private Definition[] definitions;
+
+  private int[] positions;
+
+  private int size;
+
+  VariableTable() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Number of variables in the table.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the definition of the variable, or null.
+   */
+  Definition get(String name) {
+    int mask = names.length - 1;
+    for (int i = hash(name) & mask; names[i] != null; i = (i + 1) & mask) {
+      if (names[i].equals(name)) {
+        return definitions[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Registers a definition found at the given position in the block, unless
+   * a definition of the same name is found after it.
+   */
+  void put(Definition def, int position) {
+    if ((size + 1) * 4 > names.length * 3) {
+      resize();
+    }
+    String name = def.name();
+    int mask = names.length - 1;
+    int i = hash(name) & mask;
+    for (; names[i] != null; i = (i + 1) & mask) {
+      if (names[i].equals(name)) {
+        if (positions[i] <= position) {
+          definitions[i] = def;
+          positions[i] = position;
+        }
+        return;
+      }
+    }
+    names[i] = name;
+    definitions[i] = def;
+    positions[i] = position;
+    size++;
+  }
+
+  /**
+   * Indicates a definition in the table lies at a position in the range
+   * {@code [start, end)}.
+   */
+  boolean defines(int start, int end) {
+    if (start >= end) {
+      return false;
+    }
+    for (int i = 0; i < names.length; i++) {
+      if (names[i] != null && positions[i] >= start && positions[i] < end) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adjusts the positions of the definitions at or after {@code start} by
+   * {@code delta}, after rules have been inserted or removed.
+   */
+  void shift(int start, int delta) {
+    if (delta == 0) {
+      return;
+    }
+    for (int i = 0; i < names.length; i++) {
+      if (names[i] != null && positions[i] >= start) {
+        positions[i] += delta;
+      }
+    }
+  }
+
+  /**
+   * Removes all variables from the table.
+   */
+  void clear() {
+    if (size > 0) {
+      Arrays.fill(names, null);
+      Arrays.fill(definitions, null);
+      size = 0;
+    }
+  }
+
+  private void resize() {
+    String[] oldNames = names;
+    Definition[] oldDefinitions = definitions;
+    int[] oldPositions = positions;
+    allocate(oldNames.length * 2);
+
+    int mask = names.length - 1;
+    for (int j = 0; j < oldNames.length; j++) {
+      String name = oldNames[j];
+      if (name == null) {
+        continue;
+      }
+      int i = hash(name) & mask;
+      while (names[i] != null) {
+        i = (i + 1) & mask;
+      }
+      names[i] = name;
+      definitions[i] = oldDefinitions[j];
+      positions[i] = oldPositions[j];
+    }
+  }
+
+  private void allocate(int capacity) {
+    names = new String[capacity];
+    definitions = new Definition[capacity];
+    positions = new int[capacity];
+  }
+
+  private static int hash(String name) {
+    // Spread the high bits, since variable names often share a prefix.
+    int h = name.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+}
@@ -16,6 +16,7 @@
 
 package com.squarespace.less.parse;
 
+import static com.squarespace.less.core.StringInterner.intern;
 import static com.squarespace.less.parse.Parselets.ENTITY;
 
 import com.squarespace.less.LessException;
@@ -49,7 +50,7 @@ public class AssignmentParselet implements Parselet {
       return null;
     }
 
-    return new Assignment(name, value);
+    return new Assignment(intern(name), value);
   }
 
 }
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.exec.ExecEnv;
+import com.squarespace.less.model.Expression;
+import com.squarespace.less.model.ExpressionList;
+import com.squarespace.less.model.FunctionCall;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.Operation;
+import com.squarespace.less.model.Paren;
+
+
+/**
+ * Evaluates operations and pure function calls whose operands are all constant,
+ * replacing them with their results at parse time. The folded values no longer
+ * need evaluation, so they are skipped on every compile of the tree.
+ *
+ * Operations which must be left as-is under strict math are never folded.
+ */
+public class ConstantFolder {
+
+  /**
+   * Context for the current parse.
+   */
+  private final LessContext ctx;
+
+  /**
+   * Environment used to evaluate constant nodes. It has no frames, so nothing
+   * folded here can depend on a variable.
+   */
+  private ExecEnv env;
+
+  public ConstantFolder(LessContext ctx) {
+    this.ctx = ctx;
+    this.env = ctx.newEnv();
+  }
+
+  /**
+   * Returns the folded value, or the original node if nothing could be folded.
+   */
+  public Node fold(Node node) {
+    if (node == null || !node.needsEval()) {
+      return node;
+    }
+
+    switch (node.type()) {
+
+      case EXPRESSION:
+        return foldExpression((Expression)node);
+
+      case EXPRESSION_LIST:
+        return foldExpressionList((ExpressionList)node);
+
+      case FUNCTION_CALL:
+        return foldFunctionCall((FunctionCall)node);
+
+      case OPERATION:
+        return foldOperation((Operation)node);
+
+      case PAREN:
+        return foldParen((Paren)node);
+
+      default:
+        return node;
+    }
+  }
+
+  private Node foldExpression(Expression expr) {
+    List<Node> values = foldAll(expr.values());
+    if (values == null) {
+      return expr;
+    }
+    Expression result = new Expression(values);
+    result.copyBase(expr);
+    return result;
+  }
+
+  private Node foldExpressionList(ExpressionList list) {
+    List<Node> values = foldAll(list.expressions());
+    if (values == null) {
+      return list;
+    }
+    ExpressionList result = new ExpressionList(values);
+    result.copyBase(list);
+    return result;
+  }
+
+  private Node foldFunctionCall(FunctionCall call) {
+    List<Node> args = foldAll(call.args());
+    FunctionCall folded = call;
+    if (args != null) {
+      folded = new FunctionCall(call.name(), args, call.noImplementation());
+      folded.copyBase(call);
+    }
+
+    if (!call.noImplementation() && ctx.isPureFunction(call.name()) && constant(folded.args())) {
+      Node result = evaluate(folded);
+      if (result != null) {
+        return result;
+      }
+    }
+    return folded;
+  }
+
+  private Node foldOperation(Operation op) {
+    Node left = fold(op.left());
+    Node right = fold(op.right());
+    Operation folded = op;
+    if (left != op.left() || right != op.right()) {
+      folded = new Operation(op.operator(), left, right, op.isSubExpression());
+      folded.setRequireStrictMath(op.requiresStrictMath());
+      folded.copyBase(op);
+    }
+
+    // Under strict math this operation is emitted as-is, so leave it alone.
+    boolean strict = op.requiresStrictMath() && !op.isSubExpression();
+    if (!strict && !left.needsEval() && !right.needsEval()) {
+      Node result = evaluate(folded);
+      if (result != null) {
+        return result;
+      }
+    }
+    return folded;
+  }
+
+  private Node foldParen(Paren paren) {
+    Node value = fold(paren.value());
+    if (value == paren.value()) {
+      return paren;
+    }
+    Paren result = new Paren(value);
+    result.copyBase(paren);
+    return result;
+  }
+
+  /**
+   * Folds each of the nodes, returning a new list if any of them changed,
+   * otherwise null.
+   */
+  private List<Node> foldAll(List<Node> nodes) {
+    List<Node> result = null;
+    int size = nodes.size();
+    for (int i = 0; i < size; i++) {
+      Node node = nodes.get(i);
+      Node folded = fold(node);
+      if (folded != node && result == null) {
+        result = new ArrayList<>(nodes.subList(0, i));
+      }
+      if (result != null) {
+        result.add(folded);
+      }
+    }
+    return result;
+  }
+
+  private static boolean constant(List<Node> nodes) {
+    for (Node node : nodes) {
+      if (node.needsEval()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Evaluates a node whose operands are constant. Returns null if the evaluation
+   * fails or produces a warning, leaving the node to report it with full context
+   * during evaluation.
+   */
+  private Node evaluate(Node node) {
+    try {
+      Node result = node.eval(env);
+      if (env.warnings() == null && !env.hasError() && !result.needsEval()) {
+        return result;
+      }
+    } catch (LessException e) {
+      // Fall through
+    }
+    if (env.hasError()) {
+      env = ctx.newEnv();
+    }
+    return null;
+  }
+
+}
@@ -22,6 +22,7 @@ import static com.squarespace.less.core.Chars.LEFT_PARENTHESIS;
 import static com.squarespace.less.core.Chars.LEFT_SQUARE_BRACKET;
 import static com.squarespace.less.core.Chars.RIGHT_PARENTHESIS;
 import static com.squarespace.less.core.Chars.RIGHT_SQUARE_BRACKET;
+import static com.squarespace.less.core.StringInterner.intern;
 import static com.squarespace.less.parse.Parselets.ELEMENT_SUB;
 import static com.squarespace.less.parse.Parselets.QUOTED;
 import static com.squarespace.less.parse.Parselets.VARIABLE_CURLY;
@@ -66,14 +67,14 @@ public class ElementParselet implements Parselet {
     //  sub        - parenthesis-wrapped variable / selector
 
     if (stm.matchElement0()) {
-      return new TextElement(stm.token());
+      return new TextElement(intern(stm.token()));
 
     } else if (stm.matchElement1()) {
-      return new TextElement(stm.token());
+      return new TextElement(intern(stm.token()));
 
     } else if (ch == ASTERISK) {
       stm.seek1();
-      return new TextElement(Character.toString(ch));
+      return new TextElement(intern(Character.toString(ch)));
 
     } else if (ch == AMPERSAND) {
       stm.seek1();
@@ -87,10 +88,10 @@ public class ElementParselet implements Parselet {
     }
 
     if (stm.matchElement2()) {
-      return new TextElement(stm.token());
+      return new TextElement(intern(stm.token()));
 
     } else if (stm.matchElement3()) {
-      return new TextElement(stm.token());
+      return new TextElement(intern(stm.token()));
 
     } else {
       Node var = stm.parse(VARIABLE_CURLY);
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.squarespace.less.core.LessInternalException;
+import com.squarespace.less.model.Stylesheet;
+
+
+/**
+ * Read-only stylesheet held in its serialized form, for servers which keep
+ * many parsed trees warm. The whole tree lives in a single byte array rather
+ * than one object per node, so it costs the collector nothing to trace. The
+ * model objects are built each time the tree is rendered and dropped once
+ * rendering is done, unless the caller chooses to keep them with
+ * {@link #materialize()} until {@link #release()}. The serialized tree may
+ * itself be held outside the Java heap in a direct buffer.
+ *
+ * See {@link StylesheetWriter} for the encoding.
+ */
+public class FlatStylesheet {
+
+  private final ByteBuffer data;
+
+  private volatile Stylesheet materialized;
+
+  /**
+   * Constructs a flat stylesheet from data produced by {@link StylesheetWriter}.
+   */
+  public FlatStylesheet(byte[] data) {
+    this(ByteBuffer.wrap(data));
+  }
+
+  /**
+   * Constructs a flat stylesheet from data produced by {@link StylesheetWriter},
+   * which may be a direct or memory-mapped buffer.
+   */
+  public FlatStylesheet(ByteBuffer data) {
+    this.data = data.asReadOnlyBuffer();
+  }
+
+  /**
+   * Flattens the parsed stylesheet. The original tree is not retained.
+   */
+  public static FlatStylesheet flatten(Stylesheet sheet) {
+    return flatten(sheet, false);
+  }
+
+  /**
+   * Flattens the parsed stylesheet, optionally holding the serialized tree
+   * in a direct buffer outside the Java heap.
+   */
+  public static FlatStylesheet flatten(Stylesheet sheet, boolean offHeap) {
+    byte[] bytes = StylesheetWriter.serialize(sheet);
+    if (!offHeap) {
+      return new FlatStylesheet(bytes);
+    }
+    ByteBuffer buf = ByteBuffer.allocateDirect(bytes.length);
+    buf.put(bytes);
+    buf.flip();
+    return new FlatStylesheet(buf);
+  }
+
+  /**
+   * Returns a read-only view of the serialized tree.
+   */
+  public ByteBuffer data() {
+    return data.duplicate();
+  }
+
+  /**
+   * Size of the serialized tree, in bytes.
+   */
+  public int size() {
+    return data.remaining();
+  }
+
+  /**
+   * Indicates the model objects are currently kept by {@link #materialize()}.
+   */
+  public boolean materialized() {
+    return materialized != null;
+  }
+
+  /**
+   * Returns the stylesheet's model objects. These are the objects kept by
+   * {@link #materialize()} if any, otherwise they are built for this call only
+   * and are not retained. The result must not be modified.
+   */
+  public Stylesheet stylesheet() {
+    Stylesheet sheet = materialized;
+    return sheet == null ? read() : sheet;
+  }
+
+  /**
+   * Builds the stylesheet's model objects and keeps them until {@link #release()},
+   * for a tree rendered often enough to be worth holding. The result must not be
+   * modified, and can be rendered by many threads at once. Threads racing to
+   * build the tree may each build a copy, which is harmless.
+   */
+  public Stylesheet materialize() {
+    Stylesheet sheet = materialized;
+    if (sheet == null) {
+      sheet = read();
+      materialized = sheet;
+    }
+    return sheet;
+  }
+
+  /**
+   * Drops the model objects kept by {@link #materialize()}, leaving only the
+   * serialized tree.
+   */
+  public void release() {
+    materialized = null;
+  }
+
+  private Stylesheet read() {
+    try {
+      return StylesheetReader.read(data.duplicate());
+    } catch (IOException e) {
+      throw new LessInternalException("Serious error: unable to materialize flat stylesheet", e);
+    }
+  }
+
+}
@@ -16,6 +16,7 @@
 
 package com.squarespace.less.parse;
 
+import static com.squarespace.less.core.StringInterner.intern;
 import static com.squarespace.less.core.SyntaxErrorMaker.expected;
 import static com.squarespace.less.parse.Parselets.FUNCTION_CALL_ARGS;
 import static com.squarespace.less.parse.Parselets.FUNCTION_CALL_SUB;
@@ -59,7 +60,7 @@ public class FunctionCallParselet implements Parselet {
 
     // Use the lowercase version of the name to match less.js. CSS is case-insensitive
     // within the ASCII range.
-    FunctionCall call = new FunctionCall(nameLC);
+    FunctionCall call = new FunctionCall(intern(nameLC));
     ExpressionList args = parseArgs(stm);
     for (Node arg : args.expressions()) {
       call.add(arg);
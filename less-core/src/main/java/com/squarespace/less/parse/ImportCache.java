@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.nio.file.Path;
+
+
+/**
+ * Cache of parsed imports which can be shared by many compiles. Implementations
+ * must be safe for use by multiple threads.
+ */
+public interface ImportCache {
+
+  /**
+   * Returns the tree cached under the given key, or null.
+   */
+  ImportTree get(ImportKey key);
+
+  /**
+   * Caches the tree under the given key.
+   */
+  void put(ImportKey key, ImportTree tree);
+
+  /**
+   * Removes all trees parsed from the given path, along with any trees which
+   * imported it.
+   */
+  void invalidate(Path path);
+
+  /**
+   * Removes all cached trees.
+   */
+  void clear();
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Records which files imported which other files during a compile.
+ */
+public class ImportGraph {
+
+  /**
+   * Files imported by each file, in import order.
+   */
+  private final Map<Path, Set<Path>> imports = new LinkedHashMap<>();
+
+  /**
+   * Files which import each file.
+   */
+  private final Map<Path, Set<Path>> importers = new HashMap<>();
+
+  /**
+   * Records that {@code from} imported {@code to}.
+   */
+  public void add(Path from, Path to) {
+    edges(imports, from).add(to);
+    edges(importers, to).add(from);
+  }
+
+  /**
+   * Removes all recorded imports.
+   */
+  public void clear() {
+    imports.clear();
+    importers.clear();
+  }
+
+  /**
+   * Returns the files directly imported by the given file.
+   */
+  public Set<Path> imports(Path from) {
+    return safeSet(imports.get(from));
+  }
+
+  /**
+   * Returns the files which directly import the given file.
+   */
+  public Set<Path> importers(Path to) {
+    return safeSet(importers.get(to));
+  }
+
+  /**
+   * Returns the given file and every file it imports, directly or indirectly.
+   */
+  public Set<Path> reachable(Path root) {
+    return walk(Collections.singleton(root), imports);
+  }
+
+  /**
+   * Returns the given files and every file which imports one of them, directly
+   * or indirectly.
+   */
+  public Set<Path> dependents(Collection<Path> paths) {
+    return walk(paths, importers);
+  }
+
+  private static Set<Path> walk(Collection<Path> start, Map<Path, Set<Path>> edges) {
+    Set<Path> result = new LinkedHashSet<>(start);
+    Deque<Path> queue = new ArrayDeque<>(start);
+    while (!queue.isEmpty()) {
+      Set<Path> next = edges.get(queue.pop());
+      if (next != null) {
+        for (Path path : next) {
+          if (result.add(path)) {
+            queue.add(path);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static Set<Path> edges(Map<Path, Set<Path>> map, Path key) {
+    Set<Path> set = map.get(key);
+    if (set == null) {
+      set = new LinkedHashSet<>();
+      map.put(key, set);
+    }
+    return set;
+  }
+
+  private static Set<Path> safeSet(Set<Path> set) {
+    return set == null ? Collections.<Path>emptySet() : Collections.unmodifiableSet(set);
+  }
+
+}
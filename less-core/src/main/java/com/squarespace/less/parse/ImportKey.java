@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.nio.file.Path;
+
+
+/**
+ * Identifies a parsed import by its normalized path, a fingerprint of the
+ * file's contents, and a string capturing the options which affect how the
+ * file is parsed.
+ */
+public class ImportKey {
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /**
+   * Normalized path of the imported file.
+   */
+  private final Path path;
+
+  /**
+   * Hash of the file's contents.
+   */
+  private final long fingerprint;
+
+  /**
+   * Length of the file's contents.
+   */
+  private final int length;
+
+  /**
+   * Parse options in effect when the file was parsed.
+   */
+  private final String variant;
+
+  public ImportKey(Path path, String source, String variant) {
+    this(path, fingerprint(source), source.length(), variant);
+  }
+
+  public ImportKey(Path path, long fingerprint, int length, String variant) {
+    this.path = path;
+    this.fingerprint = fingerprint;
+    this.length = length;
+    this.variant = variant;
+  }
+
+  public Path path() {
+    return path;
+  }
+
+  public long fingerprint() {
+    return fingerprint;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  public String variant() {
+    return variant;
+  }
+
+  /**
+   * Indicates whether {@code source} has the same contents as the file this
+   * key was constructed from.
+   */
+  public boolean matches(String source) {
+    return source.length() == length && fingerprint(source) == fingerprint;
+  }
+
+  /**
+   * Computes a 64-bit FNV-1a hash of the string's characters.
+   */
+  public static long fingerprint(String source) {
+    long hash = FNV_OFFSET;
+    int len = source.length();
+    for (int i = 0; i < len; i++) {
+      hash ^= source.charAt(i);
+      hash *= FNV_PRIME;
+    }
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof ImportKey) {
+      ImportKey other = (ImportKey)obj;
+      return fingerprint == other.fingerprint
+          && length == other.length
+          && path.equals(other.path)
+          && variant.equals(other.variant);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = path.hashCode();
+    result = 31 * result + (int)(fingerprint ^ (fingerprint >>> 32));
+    result = 31 * result + variant.hashCode();
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return path + " [" + Long.toHexString(fingerprint) + ":" + length + "]";
+  }
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Index of the files under a list of import paths, so that an import can be
+ * resolved against the import paths with a single lookup instead of probing
+ * each import path in turn. Each relative file path maps to the import paths
+ * containing it, in the order the import paths are given.
+ *
+ * The index is a snapshot. It can be rebuilt with {@link #refresh()}, or kept
+ * up to date by {@link #watch()}, which rebuilds it whenever a file is created
+ * or deleted under one of the import paths. File names are matched exactly,
+ * so on case-insensitive filesystems an import must use the file's own case.
+ */
+public class ImportPathIndex {
+
+  private final List<Path> importPaths;
+
+  private volatile Map<Path, List<Path>> index = Collections.emptyMap();
+
+  private WatchService watcher;
+
+  /**
+   * Constructs an index of the given import paths and scans them.
+   */
+  public ImportPathIndex(List<Path> importPaths) throws IOException {
+    this.importPaths = new ArrayList<>(importPaths);
+    refresh();
+  }
+
+  /**
+   * The import paths covered by this index.
+   */
+  public List<Path> importPaths() {
+    return importPaths;
+  }
+
+  /**
+   * Indicates the index can resolve the raw import path against the given
+   * import paths. Absolute paths and paths leading outside the import paths
+   * are not indexed.
+   */
+  public boolean handles(List<Path> paths, String rawPath) {
+    if (!importPaths.equals(paths)) {
+      return false;
+    }
+    Path key = Paths.get(rawPath).normalize();
+    return !key.isAbsolute() && !key.startsWith("..");
+  }
+
+  /**
+   * Returns the import paths containing the raw import path, in order, or an
+   * empty list if none do.
+   */
+  public List<Path> lookup(String rawPath) {
+    List<Path> result = index.get(Paths.get(rawPath).normalize());
+    return result == null ? Collections.<Path>emptyList() : result;
+  }
+
+  /**
+   * Number of distinct relative paths in the index.
+   */
+  public int size() {
+    return index.size();
+  }
+
+  /**
+   * Scans the import paths again and replaces the index.
+   */
+  public synchronized void refresh() throws IOException {
+    final Map<Path, List<Path>> result = new HashMap<>();
+    final List<Path> directories = new ArrayList<>();
+    for (final Path importPath : importPaths) {
+      if (!Files.isDirectory(importPath)) {
+        continue;
+      }
+      // Follow symbolic links, as resolving an import does. Directory loops
+      // are reported to visitFileFailed and skipped.
+      Files.walkFileTree(importPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+              directories.add(dir);
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+              Path key = importPath.relativize(file).normalize();
+              List<Path> paths = result.get(key);
+              if (paths == null) {
+                result.put(key, Collections.singletonList(importPath));
+              } else {
+                paths = new ArrayList<>(paths);
+                paths.add(importPath);
+                result.put(key, paths);
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    }
+    index = result;
+    if (watcher != null) {
+      for (Path dir : directories) {
+        dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE);
+      }
+    }
+  }
+
+  /**
+   * Starts a daemon thread which refreshes the index whenever a file is created
+   * or deleted under one of the import paths.
+   */
+  public synchronized void watch() throws IOException {
+    if (watcher != null) {
+      return;
+    }
+    watcher = importPaths.isEmpty()
+        ? Paths.get(".").getFileSystem().newWatchService()
+        : importPaths.get(0).getFileSystem().newWatchService();
+    refresh();
+
+    final WatchService service = watcher;
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          for (;;) {
+            WatchKey key = service.take();
+            do {
+              key.pollEvents();
+              key.reset();
+              key = service.poll();
+            } while (key != null);
+            refresh();
+          }
+        } catch (ClosedWatchServiceException | InterruptedException | IOException e) {
+          // Stop watching.
+        }
+      }
+    }, "less-import-path-index");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops watching the import paths.
+   */
+  public synchronized void close() throws IOException {
+    if (watcher != null) {
+      watcher.close();
+      watcher = null;
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import com.squarespace.less.model.Block;
+
+
+/**
+ * The parsed contents of an imported file, including the contents of any
+ * files it imports in turn. Once cached, the block and every node beneath
+ * it are shared among many compiles and must never be modified.
+ */
+public class ImportTree {
+
+  /**
+   * Rules parsed from the imported file.
+   */
+  private final Block block;
+
+  /**
+   * Files imported while parsing this file, in the order they were imported.
+   */
+  private final List<Dependency> dependencies;
+
+  /**
+   * Deepest import nesting below this file.
+   */
+  private final int depth;
+
+  /**
+   * Approximate size of this tree, in number of source characters.
+   */
+  private final int weight;
+
+  public ImportTree(Block block, List<Dependency> dependencies, int sourceLength) {
+    this.block = block;
+    this.dependencies = dependencies;
+    int depth = 0;
+    int weight = sourceLength;
+    for (Dependency dep : dependencies) {
+      depth = Math.max(depth, dep.depth);
+      weight += dep.key.length();
+    }
+    this.depth = depth;
+    this.weight = weight;
+  }
+
+  public Block block() {
+    return block;
+  }
+
+  public List<Dependency> dependencies() {
+    return dependencies;
+  }
+
+  public int depth() {
+    return depth;
+  }
+
+  public int weight() {
+    return weight;
+  }
+
+  /**
+   * A file imported while parsing the tree.
+   */
+  public static class Dependency {
+
+    /**
+     * Key for the imported file's path and contents.
+     */
+    private final ImportKey key;
+
+    /**
+     * Whether the file can only be imported once per compile.
+     */
+    private final boolean once;
+
+    /**
+     * Import nesting depth, relative to the file that was parsed.
+     */
+    private final int depth;
+
+    /**
+     * Path of the file containing the import statement.
+     */
+    private final Path importer;
+
+    public Dependency(ImportKey key, boolean once, int depth, Path importer) {
+      this.key = key;
+      this.once = once;
+      this.depth = depth;
+      this.importer = importer;
+    }
+
+    public ImportKey key() {
+      return key;
+    }
+
+    public Path importer() {
+      return importer;
+    }
+
+    public boolean once() {
+      return once;
+    }
+
+    public int depth() {
+      return depth;
+    }
+
+  }
+
+}
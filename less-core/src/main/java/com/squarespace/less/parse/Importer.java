@@ -28,6 +28,7 @@ import com.squarespace.less.FilesystemLessLoader;
 import com.squarespace.less.LessContext;
 import com.squarespace.less.LessException;
 import com.squarespace.less.LessLoader;
+import com.squarespace.less.LessStats;
 import com.squarespace.less.exec.ImportRecord;
 import com.squarespace.less.model.Import;
 import com.squarespace.less.model.Node;
@@ -46,10 +47,14 @@ public class Importer {
 
   private final Map<Path, ImportRecord> importRecords = new HashMap<>();
 
+  private final ImportGraph graph = new ImportGraph();
+
   private final LessContext context;
 
   private final LessLoader loader;
 
+  private ImportPathIndex pathIndex;
+
   public Importer(LessContext context) {
     this(context, null);
   }
@@ -59,6 +64,33 @@ public class Importer {
     this.loader = (loader == null) ? new FilesystemLessLoader() : loader;
   }
 
+  /**
+   * Forgets all imports recorded so far, to reuse this instance for another compile.
+   */
+  public void reset() {
+    importRecords.clear();
+    graph.clear();
+  }
+
+  /**
+   * Resolves imports against the global import paths using the index, when
+   * the index covers the same import paths as the options.
+   */
+  public void pathIndex(ImportPathIndex index) {
+    this.pathIndex = index;
+  }
+
+  public ImportPathIndex pathIndex() {
+    return pathIndex;
+  }
+
+  /**
+   * Returns the graph of files imported so far.
+   */
+  public ImportGraph graph() {
+    return graph;
+  }
+
   /**
    * Resolve the path and determine if it can be loaded. Returns the resolved
    * path or null if no valid path could be resolved.
@@ -73,14 +105,29 @@ public class Importer {
    * the "once" directive globally.
    */
   public void recordImport(Import importNode, Path path) {
-    importRecords.put(path, new ImportRecord(path, null, importNode.once()));
+    recordImport(path, importNode.once());
+  }
+
+  /**
+   * Records that an import occurred for a given path, with the value of its
+   * "once" flag.
+   */
+  public void recordImport(Path path, boolean once) {
+    importRecords.put(path, new ImportRecord(path, null, once));
   }
 
   /**
    * Load the source from the {@link LessLoader}.
    */
   public String loadSource(Path path) throws LessException {
-    return loader.load(path);
+    LessStats stats = context.stats();
+    long started = stats.now();
+    try {
+      return loader.load(path);
+    } finally {
+      stats.diskWaitDone(started);
+      stats.fileRead();
+    }
   }
 
   /**
@@ -125,6 +172,12 @@ public class Importer {
       return null;
     }
 
+    // Only probe the import paths the index says contain the path.
+    ImportPathIndex index = pathIndex;
+    if (index != null && index.handles(importPaths, rawPath)) {
+      importPaths = index.lookup(rawPath);
+    }
+
     // Check if the path exists under one of the global import paths,
     // if any are defined.
     for (Path importPath : importPaths) {
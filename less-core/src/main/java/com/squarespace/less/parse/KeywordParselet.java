@@ -16,6 +16,8 @@
 
 package com.squarespace.less.parse;
 
+import static com.squarespace.less.core.StringInterner.intern;
+
 import com.squarespace.less.core.CharClass;
 import com.squarespace.less.model.Keyword;
 import com.squarespace.less.model.Node;
@@ -35,7 +37,7 @@ public class KeywordParselet implements Parselet {
     if (color != null) {
       return color;
     }
-    return new Keyword(stm.token());
+    return new Keyword(intern(token));
   }
 
 }
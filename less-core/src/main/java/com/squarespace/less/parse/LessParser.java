@@ -28,12 +28,15 @@ import java.util.Set;
 
 import com.squarespace.less.LessContext;
 import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.LessStats;
 import com.squarespace.less.core.FlexList;
 import com.squarespace.less.exec.ExecEnv;
 import com.squarespace.less.model.Block;
 import com.squarespace.less.model.Import;
 import com.squarespace.less.model.Node;
 import com.squarespace.less.model.Stylesheet;
+import com.squarespace.less.parse.ImportTree.Dependency;
 
 
 /**
@@ -74,13 +77,55 @@ public class LessParser {
    */
   private final ExecEnv parseEnv;
 
+  /**
+   * Cache of parsed imports shared with other parsers, or null.
+   */
+  private final ImportCache importCache;
+
+  /**
+   * Parse options included in each {@link ImportKey}.
+   */
+  private final String importVariant;
+
+  /**
+   * Files imported during this parse, in order, with their absolute
+   * import depth. Only tracked when an import cache is present.
+   */
+  private final List<Dependency> imports = new ArrayList<>();
+
+  /**
+   * Folds constant values as rules are parsed, or null if disabled.
+   */
+  private final ConstantFolder folder;
+
+  /**
+   * Number of imports suppressed during this parse.
+   */
+  private int suppressed;
+
+  /**
+   * Path of the stream whose deferred imports are being evaluated.
+   */
+  private Path deferredPath;
+
   /**
    * Construct a parser with the given context.
    */
   public LessParser(LessContext context) {
+    this(context, null);
+  }
+
+  /**
+   * Construct a parser with the given context, reusing imported trees from
+   * {@code importCache} when their contents are unchanged.
+   */
+  public LessParser(LessContext context, ImportCache importCache) {
     this.context = context;
     this.rootBlock = new Block();
     this.parseEnv = new ExecEnv(context);
+    this.importCache = importCache;
+    this.importVariant = importCache == null ? null : importVariant(context.options());
+    this.folder = context.options().foldConstants() ? new ConstantFolder(context) : null;
   }
 
   /**
@@ -97,6 +142,14 @@ public class LessParser {
     return this.context;
   }
 
+  /**
+   * Folds constant operations and pure function calls in a rule's value,
+   * if enabled by the options.
+   */
+  public Node fold(Node value) {
+    return folder == null ? value : folder.fold(value);
+  }
+
   /**
    * Top-level parse entry point.  Parses the given string and file path
    * and appends it to the current global block.
@@ -136,6 +189,7 @@ public class LessParser {
           new LessException(importError(filePath, "Recursion limit of " + limit + " exceeded")));
     }
 
+    context.governor().check();
     context.enterImport();
     this.streamPaths.add(filePath);
 
@@ -146,6 +200,62 @@ public class LessParser {
     return stream;
   }
 
+  /**
+   * Parses the rules of an imported file, returning a block holding them. The
+   * tree is taken from the import cache if the file and every file it imports
+   * are unchanged, otherwise the file is parsed and the resulting tree cached.
+   * The returned block must not be modified.
+   */
+  public Block parseImport(Import importNode, Path path, String source, ExecEnv env) throws LessException {
+    int depth = context.importDepth();
+    Path from = streams.isEmpty() ? deferredPath : streams.last().path();
+    context.importer().graph().add(from, path);
+
+    ImportKey key = null;
+    if (importCache != null) {
+      key = new ImportKey(path, source, importVariant);
+      ImportTree tree = importCache.get(key);
+      if (tree != null && reuseImport(tree, path, depth)) {
+        imports.add(new Dependency(key, importNode.once(), depth, from));
+        replayImports(tree, depth);
+        return tree.block();
+      }
+      imports.add(new Dependency(key, importNode.once(), depth, from));
+    }
+
+    int importMark = imports.size();
+    int deferredMark = deferreds.size();
+    int suppressedMark = suppressed;
+
+    Block block = new Block();
+    LessStream stream = push(source, path, env);
+    PrimaryParselet.parseBlock(block, stream);
+    stream.checkComplete();
+    pop();
+    context.stats().importDone(false);
+
+    // Only cache the tree if parsing it did not depend on the state of
+    // this compile, e.g. variables used to interpolate import paths, or
+    // imports suppressed because they occurred earlier.
+    if (key != null && deferreds.size() == deferredMark && suppressed == suppressedMark) {
+      List<Dependency> dependencies = new ArrayList<>(imports.size() - importMark);
+      for (int i = importMark; i < imports.size(); i++) {
+        Dependency dep = imports.get(i);
+        dependencies.add(new Dependency(dep.key(), dep.once(), dep.depth() - depth, dep.importer()));
+      }
+      TreeCompactor.compact(block);
+      importCache.put(key, new ImportTree(block, dependencies, source.length()));
+    }
+    return block;
+  }
+
+  /**
+   * Indicate that an import was suppressed during the parse.
+   */
+  public void importSuppressed() {
+    suppressed++;
+  }
+
   /**
    * Pops the current stream.
    */
@@ -155,11 +265,66 @@ public class LessParser {
     this.streamPaths.remove(stream.path());
     List<ExecEnv> envs = stream.deferreds();
     if (!envs.isEmpty()) {
-      deferreds.add(new Deferred(envs, stream.raw()));
+      deferreds.add(new Deferred(envs, stream.raw(), stream.path()));
     }
     return stream;
   }
 
+  /**
+   * Indicates whether a cached tree can be spliced into the current parse. The
+   * files it imported must be unchanged, must not already have been imported
+   * once by this compile, and must not be currently parsing. In any of those
+   * cases a parse is needed to produce the correct tree or error.
+   *
+   * Cache keys fingerprint a file's contents, so checking a dependency reads
+   * it; these reads are counted in the stats like any other.
+   */
+  private boolean reuseImport(ImportTree tree, Path path, int depth) {
+    if (streamPaths.contains(path) || depth + tree.depth() > context.options().importRecursionLimit()) {
+      return false;
+    }
+
+    Importer importer = context.importer();
+    for (Dependency dep : tree.dependencies()) {
+      ImportKey key = dep.key();
+      if (streamPaths.contains(key.path()) || importer.shouldSuppressImport(key.path())) {
+        return false;
+      }
+      try {
+        if (!key.matches(importer.loadSource(key.path()))) {
+          return false;
+        }
+      } catch (LessException e) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Records the imports performed by a cached tree as if they had just been parsed.
+   */
+  private void replayImports(ImportTree tree, int depth) {
+    Importer importer = context.importer();
+    LessStats stats = context.stats();
+    for (Dependency dep : tree.dependencies()) {
+      importer.recordImport(dep.key().path(), dep.once());
+      importer.graph().add(dep.importer(), dep.key().path());
+      imports.add(new Dependency(dep.key(), dep.once(), depth + dep.depth(), dep.importer()));
+      stats.importDone(true);
+    }
+    stats.importDone(true);
+    stats.importDepth(depth + tree.depth() + 1);
+  }
+
+  /**
+   * Builds a string from the options which affect how an imported file is parsed.
+   */
+  private static String importVariant(LessOptions options) {
+    return options.tracing() + ":" + options.importOnce() + ":" + options.foldConstants()
+        + ":" + options.importPaths();
+  }
+
   /**
    * Carry out evaluation of parsed blocks with one or more children
    * which require evaluation.  These evaluations have been deferred.
@@ -195,6 +360,7 @@ public class LessParser {
   private void evaluateDeferredClosure(Deferred deferred, ExecEnv env) throws LessException {
     // Get the block at the top of the closure stack.
     Block block = env.frames().last();
+    deferredPath = deferred.path;
 
     // Clear the deferred evaluation flag.  This is because we will be
     // adding new imports to this block which may require variable interpolation.
@@ -227,9 +393,8 @@ public class LessParser {
             // Splice imported rules into block, replacing the import node.
             i += block.splice(i, 1, tempBlock) - 1;
 
-            // Ensure the variable cache gets rebuilt, so any variable lookups
-            // see definitions added by the import.
-            block.resetVariableCache();
+            // Ensure variable lookups see definitions added by the import.
+            env.variablesChanged();
             block.orFlags(tempBlock);
           }
         } catch (LessException e) {
@@ -254,9 +419,15 @@ public class LessParser {
      */
     private final String raw;
 
-    Deferred(List<ExecEnv> envs, String raw) {
+    /**
+     * Path of the active stream when this closure was deferred.
+     */
+    private final Path path;
+
+    Deferred(List<ExecEnv> envs, String raw, Path path) {
       this.envs = envs;
       this.raw = raw;
+      this.path = path;
     }
 
   }
@@ -190,14 +190,21 @@ public class LessStream extends Stream {
     for (Parselet parselet : parselets) {
       result = parselet.parse(this);
       if (result != null) {
-        result.setLineOffset(pos.lineOffset);
-        result.setCharOffset(pos.charOffset);
+        position(result, pos);
         break;
       }
     }
     return result;
   }
 
+  /**
+   * Assigns the marked stream position to the node.
+   */
+  public void position(Node node, Mark mark) {
+    node.setLineOffset(lineOffset(mark.index));
+    node.setCharOffset(charOffset(mark.index));
+  }
+
   public String token() {
     return token;
   }
@@ -392,8 +399,6 @@ public class LessStream extends Stream {
 
   private void set(int start, int end) {
     tokenPosition.index = start;
-    tokenPosition.lineOffset = lineOffset;
-    tokenPosition.charOffset = charOffset;
     token = raw.substring(start, end);
   }
 
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Import cache which evicts the least-recently used trees once the total
+ * weight of all cached trees exceeds a limit.
+ */
+public class LruImportCache implements ImportCache {
+
+  /**
+   * Default maximum weight, in number of source characters.
+   */
+  public static final int DEFAULT_MAX_WEIGHT = 16 * 1024 * 1024;
+
+  private final Map<ImportKey, ImportTree> trees = new LinkedHashMap<>(64, 0.75f, true);
+
+  private final long maxWeight;
+
+  private long weight;
+
+  public LruImportCache() {
+    this(DEFAULT_MAX_WEIGHT);
+  }
+
+  public LruImportCache(long maxWeight) {
+    this.maxWeight = maxWeight;
+  }
+
+  @Override
+  public synchronized ImportTree get(ImportKey key) {
+    return trees.get(key);
+  }
+
+  @Override
+  public synchronized void put(ImportKey key, ImportTree tree) {
+    if (tree.weight() > maxWeight) {
+      return;
+    }
+    ImportTree old = trees.put(key, tree);
+    if (old != null) {
+      weight -= old.weight();
+    }
+    weight += tree.weight();
+
+    // Evict least-recently used trees until we're under the limit.
+    Iterator<ImportTree> iter = trees.values().iterator();
+    while (weight > maxWeight && iter.hasNext()) {
+      weight -= iter.next().weight();
+      iter.remove();
+    }
+  }
+
+  @Override
+  public synchronized void invalidate(Path path) {
+    Iterator<Map.Entry<ImportKey, ImportTree>> iter = trees.entrySet().iterator();
+    while (iter.hasNext()) {
+      Map.Entry<ImportKey, ImportTree> entry = iter.next();
+      if (entry.getKey().path().equals(path) || dependsOn(entry.getValue(), path)) {
+        weight -= entry.getValue().weight();
+        iter.remove();
+      }
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    trees.clear();
+    weight = 0;
+  }
+
+  /**
+   * Number of trees currently cached.
+   */
+  public synchronized int size() {
+    return trees.size();
+  }
+
+  /**
+   * Total weight of all trees currently cached.
+   */
+  public synchronized long weight() {
+    return weight;
+  }
+
+  private static boolean dependsOn(ImportTree tree, Path path) {
+    for (ImportTree.Dependency dep : tree.dependencies()) {
+      if (dep.key().path().equals(path)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -21,13 +21,9 @@ public class Mark {
 
   public int index;
 
-  public int lineOffset;
-
-  public int charOffset;
-
   @Override
   public String toString() {
-    return "at line " + (lineOffset + 1) + " character " + (charOffset + 1);
+    return "at index " + index;
   }
 
 }
@@ -22,6 +22,7 @@ import static com.squarespace.less.core.Chars.NUMBER_SIGN;
 import static com.squarespace.less.core.Chars.PERIOD;
 import static com.squarespace.less.core.Chars.RIGHT_CURLY_BRACKET;
 import static com.squarespace.less.core.Chars.SEMICOLON;
+import static com.squarespace.less.core.StringInterner.intern;
 import static com.squarespace.less.model.CombinatorType.CHILD;
 import static com.squarespace.less.model.CombinatorType.DESC;
 import static com.squarespace.less.parse.Parselets.MIXIN_CALL_ARGS;
@@ -51,7 +52,7 @@ public class MixinCallParselet implements Parselet {
         selector.add(combinator);
         combinator = null;
       }
-      selector.add(new TextElement(stm.token()));
+      selector.add(new TextElement(intern(stm.token())));
 
       int skipped = stm.skipWs();
       if (stm.peek() == GREATER_THAN_SIGN) {
@@ -57,7 +57,7 @@ public class PrimaryParselet implements Parselet {
    * imports.
    *
    */
-  private static void parseBlock(Block block, LessStream stm) throws LessException {
+  static void parseBlock(Block block, LessStream stm) throws LessException {
     Node node = null;
     stm.skipEmpty();
 
@@ -65,8 +65,7 @@ public class PrimaryParselet implements Parselet {
     Mark position = stm.mark();
     while ((node = stm.parse(PRIMARY_SUB)) != null) {
       // Assign stream position to successfully-parsed rule.
-      node.setLineOffset(position.lineOffset);
-      node.setCharOffset(position.charOffset);
+      stm.position(node, position);
 
       if (node instanceof Import) {
         Import importNode = (Import)node;
@@ -108,6 +107,7 @@ public class PrimaryParselet implements Parselet {
 
     if (importer.shouldSuppressImport(path)) {
       // Append nothing, just return true indicating we consumed the import.
+      parser.importSuppressed();
       return true;
     }
 
@@ -132,13 +132,10 @@ public class PrimaryParselet implements Parselet {
       parentBlock.prependNode(new ImportMarker(importNode, true));
     }
 
-    // Push a new stream onto the stack and parse it.
+    // Parse the imported file, or reuse its cached tree, and append its rules.
     importer.recordImport(importNode, path);
     String source = importer.loadSource(path);
-    LessStream childStream = parser.push(source, path, execEnv);
-    parseBlock(parentBlock, childStream);
-    childStream.checkComplete();
-    parser.pop();
+    parentBlock.appendBlock(parser.parseImport(importNode, path, source, execEnv));
 
     // Pop the media block, if any.
     if (wrapMedia) {
@@ -16,6 +16,8 @@
 
 package com.squarespace.less.parse;
 
+import static com.squarespace.less.core.StringInterner.intern;
+
 import com.squarespace.less.core.CharClass;
 import com.squarespace.less.model.Node;
 import com.squarespace.less.model.Property;
@@ -28,7 +30,7 @@ public class PropertyParselet implements Parselet {
     if (!CharClass.propertyStart(stm.peek()) || !stm.matchProperty()) {
       return null;
     }
-    return new Property(stm.token());
+    return new Property(intern(stm.token()));
   }
 
 }
@@ -94,6 +94,8 @@ public class RuleParselet implements Parselet {
       return null;
     }
 
+    value = stm.parser().fold(value);
+
     // If we parsed an AT-prefixed name, it may be a definition.
     if (key instanceof Variable) {
       Variable var = (Variable)key;
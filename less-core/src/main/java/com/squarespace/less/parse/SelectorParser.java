@@ -24,6 +24,7 @@ import static com.squarespace.less.core.Chars.LINE_FEED;
 import static com.squarespace.less.core.Chars.QUOTATION_MARK;
 import static com.squarespace.less.core.Chars.RIGHT_SQUARE_BRACKET;
 import static com.squarespace.less.core.Chars.TILDE;
+import static com.squarespace.less.core.StringInterner.intern;
 import static com.squarespace.less.model.CombinatorType.DESC;
 import static com.squarespace.less.parse.RecognizerPatterns.ATTRIBUTE_KEY;
 import static com.squarespace.less.parse.RecognizerPatterns.ATTRIBUTE_OP;
@@ -113,14 +114,14 @@ public class SelectorParser extends LightweightStream {
     //  element2   - parenthesis-wrapped text element
 
     if (match(ELEMENT0)) {
-      return new TextElement(token);
+      return new TextElement(intern(token));
 
     } else if (match(ELEMENT1)) {
-      return new TextElement(token);
+      return new TextElement(intern(token));
 
     } else if (ch == ASTERISK) {
       seek1();
-      return new TextElement(Character.toString(ch));
+      return new TextElement(intern(Character.toString(ch)));
 
     } else if (ch == AMPERSAND) {
       seek1();
@@ -133,7 +134,7 @@ public class SelectorParser extends LightweightStream {
     }
 
     if (match(ELEMENT2)) {
-      return new TextElement(token);
+      return new TextElement(intern(token));
     }
 
     // Note: we completely ignore curly variables here as this parser is only
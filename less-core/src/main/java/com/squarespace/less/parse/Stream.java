@@ -16,6 +16,8 @@
 
 package com.squarespace.less.parse;
 
+import java.util.Arrays;
+
 import org.apache.commons.lang3.StringEscapeUtils;
 
 import com.squarespace.less.core.CharClass;
@@ -39,33 +41,80 @@ public class Stream {
   protected int furthest;
 
   /**
-   * Offset of the current line. NOTE: zero-based.
+   * Index of the first character of each line, built when a position is
+   * first requested. Line and character offsets are only needed for node
+   * positions, so they are computed from the index rather than counted as
+   * each character is consumed.
    */
-  protected int lineOffset;
+  private int[] lineStarts;
 
   /**
-   * Offset of the character position of the current line. NOTE: zero-based.
+   * Number of lines in {@link #lineStarts}.
    */
-  protected int charOffset;
+  private int lineCount;
+
+  /**
+   * Line found by the most recent lookup. Positions are mostly requested in
+   * increasing order so this usually avoids the search.
+   */
+  private int lastLine;
 
   public Stream(String raw) {
     this.raw = raw;
     this.length = raw.length();
   }
 
+  /**
+   * Offset of the current line. NOTE: zero-based.
+   */
   public int getLineOffset() {
-    return lineOffset;
+    return lineOffset(index);
   }
 
+  /**
+   * Offset of the character position of the current line. NOTE: zero-based.
+   */
   public int getCharOffset() {
-    return charOffset;
+    return charOffset(index);
+  }
+
+  /**
+   * Returns the zero-based line offset of the character at {@code pos}.
+   */
+  public int lineOffset(int pos) {
+    if (lineStarts == null) {
+      buildLineStarts();
+    }
+    int line = lastLine;
+    if (pos >= lineStarts[line] && (line + 1 == lineCount || pos < lineStarts[line + 1])) {
+      return line;
+    }
+    int lo = 0;
+    int hi = lineCount - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (lineStarts[mid] <= pos) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    lastLine = lo;
+    return lo;
+  }
+
+  /**
+   * Returns the zero-based character offset within its line of the character at {@code pos}.
+   */
+  public int charOffset(int pos) {
+    return pos - lineStarts[lineOffset(pos)];
   }
 
   protected void dump() {
     char ch = (index >= length) ? Chars.EOF : raw.charAt(index);
     String esc = StringEscapeUtils.escapeJava(ch + "");
     System.out.printf("Stream: index=%d len=%d line=%d char=%d ch=\"%s\"\n",
-          index, length, lineOffset, charOffset, esc);
+          index, length, getLineOffset(), getCharOffset(), esc);
   }
 
   public String raw() {
@@ -87,8 +136,6 @@ public class Stream {
    */
   public void mark(Mark mark) {
     mark.index = index;
-    mark.lineOffset = lineOffset;
-    mark.charOffset = charOffset;
   }
 
   /**
@@ -96,8 +143,6 @@ public class Stream {
    */
   public int restore(Mark mark) {
     index = mark.index;
-    lineOffset = mark.lineOffset;
-    charOffset = mark.charOffset;
     return index;
   }
 
@@ -119,22 +164,17 @@ public class Stream {
   }
 
   /**
-   * Seek ahead in the stream 'offset' characters. Increments the stream pointer and
-   * increments the line/offset counters.
+   * Seek ahead in the stream 'offset' characters. Only moves the stream pointer and
+   * the furthest position reached; line and character offsets are computed on demand.
    */
   public char seek(int offset) {
-    int limit = Math.min(length, index + offset);
-    while (index < limit) {
-      consume(raw.charAt(index));
-      index++;
-    }
+    index = Math.max(index, Math.min(length, index + offset));
     furthest = Math.max(index, furthest);
     return peek();
   }
 
   public char seek1() {
     if (index < length) {
-      consume(raw.charAt(index));
       index++;
     }
     furthest = Math.max(index, furthest);
@@ -146,14 +186,8 @@ public class Stream {
    * the character just after 'ch', or the end of the string if not matched.
    */
   public void seekTo(char ch) {
-    while (index < length) {
-      char curr = raw.charAt(index);
-      consume(curr);
-      index++;
-      if (curr == ch) {
-        break;
-      }
-    }
+    int pos = raw.indexOf(ch, index);
+    index = pos == -1 ? length : pos + 1;
     furthest = Math.max(index, furthest);
   }
 
@@ -180,7 +214,6 @@ public class Stream {
       if (!CharClass.whitespace(curr)) {
         break;
       }
-      consume(curr);
       index++;
     }
     // Important not to update 'furthest' pointer when skipping whitespace
@@ -194,7 +227,6 @@ public class Stream {
       if (!CharClass.skippable(curr)) {
         break;
       }
-      consume(curr);
       index++;
     }
     // Important not to update 'furthest' pointer when skipping 'empty' chars.
@@ -215,7 +247,6 @@ public class Stream {
     int j;
     for (j = 0; index < length && j < patternLen; index++) {
       char ch = raw.charAt(index);
-      consume(ch);
       while (j >= 0 && ch != pattern[j]) {
         j = next[j];
       }
@@ -235,13 +266,19 @@ public class Stream {
     return raw.substring(Math.min(furthest, length - 1));
   }
 
-  private void consume(char ch) {
-    if (ch == Chars.LINE_FEED) {
-      lineOffset++;
-      charOffset = 0;
-    } else {
-      charOffset++;
+  private void buildLineStarts() {
+    int[] starts = new int[16];
+    int count = 1;
+    for (int i = 0; i < length; i++) {
+      if (raw.charAt(i) == Chars.LINE_FEED) {
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count++] = i + 1;
+      }
     }
+    lineStarts = starts;
+    lineCount = count;
   }
 
   /**
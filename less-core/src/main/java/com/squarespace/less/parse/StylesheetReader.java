@@ -0,0 +1,646 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import static com.squarespace.less.core.StringInterner.intern;
+import static com.squarespace.less.parse.StylesheetWriter.COLOR_HSL;
+import static com.squarespace.less.parse.StylesheetWriter.COLOR_KEYWORD;
+import static com.squarespace.less.parse.StylesheetWriter.COLOR_RGB;
+import static com.squarespace.less.parse.StylesheetWriter.MAGIC;
+import static com.squarespace.less.parse.StylesheetWriter.VERSION;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.squarespace.less.model.Alpha;
+import com.squarespace.less.model.Anonymous;
+import com.squarespace.less.model.Argument;
+import com.squarespace.less.model.Assignment;
+import com.squarespace.less.model.AttributeElement;
+import com.squarespace.less.model.BaseNode;
+import com.squarespace.less.model.Block;
+import com.squarespace.less.model.BlockDirective;
+import com.squarespace.less.model.BlockNode;
+import com.squarespace.less.model.Combinator;
+import com.squarespace.less.model.CombinatorType;
+import com.squarespace.less.model.Comment;
+import com.squarespace.less.model.CompositeProperty;
+import com.squarespace.less.model.Condition;
+import com.squarespace.less.model.Definition;
+import com.squarespace.less.model.DetachedRuleset;
+import com.squarespace.less.model.Dimension;
+import com.squarespace.less.model.Directive;
+import com.squarespace.less.model.Dummy;
+import com.squarespace.less.model.Expression;
+import com.squarespace.less.model.ExpressionList;
+import com.squarespace.less.model.Extend;
+import com.squarespace.less.model.ExtendList;
+import com.squarespace.less.model.False;
+import com.squarespace.less.model.Feature;
+import com.squarespace.less.model.Features;
+import com.squarespace.less.model.FunctionCall;
+import com.squarespace.less.model.GenericBlock;
+import com.squarespace.less.model.Guard;
+import com.squarespace.less.model.HSLColor;
+import com.squarespace.less.model.Import;
+import com.squarespace.less.model.ImportMarker;
+import com.squarespace.less.model.Keyword;
+import com.squarespace.less.model.KeywordColor;
+import com.squarespace.less.model.Media;
+import com.squarespace.less.model.Mixin;
+import com.squarespace.less.model.MixinCall;
+import com.squarespace.less.model.MixinCallArgs;
+import com.squarespace.less.model.MixinMarker;
+import com.squarespace.less.model.MixinParams;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.NodeType;
+import com.squarespace.less.model.Operation;
+import com.squarespace.less.model.Operator;
+import com.squarespace.less.model.Parameter;
+import com.squarespace.less.model.Paren;
+import com.squarespace.less.model.ParseError;
+import com.squarespace.less.model.Property;
+import com.squarespace.less.model.PropertyMergeMode;
+import com.squarespace.less.model.Quoted;
+import com.squarespace.less.model.RGBColor;
+import com.squarespace.less.model.Ratio;
+import com.squarespace.less.model.Rule;
+import com.squarespace.less.model.Ruleset;
+import com.squarespace.less.model.Selector;
+import com.squarespace.less.model.SelectorPart;
+import com.squarespace.less.model.Selectors;
+import com.squarespace.less.model.Shorthand;
+import com.squarespace.less.model.Stylesheet;
+import com.squarespace.less.model.TextElement;
+import com.squarespace.less.model.True;
+import com.squarespace.less.model.UnicodeRange;
+import com.squarespace.less.model.Unit;
+import com.squarespace.less.model.Url;
+import com.squarespace.less.model.ValueElement;
+import com.squarespace.less.model.Variable;
+import com.squarespace.less.model.WildcardElement;
+
+
+/**
+ * Loads a {@link Stylesheet} serialized by {@link StylesheetWriter}. Nodes are
+ * constructed directly from the encoded fields, skipping the parser entirely.
+ */
+public class StylesheetReader {
+
+  private static final NodeType[] NODE_TYPES = NodeType.values();
+
+  private static final CombinatorType[] COMBINATOR_TYPES = CombinatorType.values();
+
+  private static final Operator[] OPERATORS = Operator.values();
+
+  private static final PropertyMergeMode[] MERGE_MODES = PropertyMergeMode.values();
+
+  private final ByteBuffer buf;
+
+  private String[] strings;
+
+  /**
+   * Paths are shared by many nodes, so each is only constructed once.
+   */
+  private Path[] paths;
+
+  private StylesheetReader(ByteBuffer buf) {
+    this.buf = buf;
+  }
+
+  /**
+   * Loads a stylesheet from a byte array.
+   */
+  public static Stylesheet read(byte[] data) throws IOException {
+    return read(ByteBuffer.wrap(data));
+  }
+
+  /**
+   * Loads a stylesheet from the remaining bytes in the buffer.
+   */
+  public static Stylesheet read(ByteBuffer buf) throws IOException {
+    StylesheetReader reader = new StylesheetReader(buf.slice());
+    try {
+      return reader.stylesheet();
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | ClassCastException e) {
+      throw new IOException("Serialized stylesheet is corrupt", e);
+    }
+  }
+
+  /**
+   * Loads a stylesheet from a file, memory-mapping its contents.
+   */
+  public static Stylesheet read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  private Stylesheet stylesheet() throws IOException {
+    if (buf.remaining() < 4 || buf.getInt() != MAGIC) {
+      throw new IOException("Not a serialized stylesheet");
+    }
+    int version = varint();
+    if (version != VERSION) {
+      throw new IOException("Unsupported serialized stylesheet version " + version + ", expected " + VERSION);
+    }
+
+    int size = varint();
+    strings = new String[size];
+    paths = new Path[size];
+    for (int i = 0; i < size; i++) {
+      byte[] bytes = new byte[varint()];
+      buf.get(bytes);
+      strings[i] = intern(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    Node node = node();
+    if (!(node instanceof Stylesheet)) {
+      throw new IOException("Serialized tree does not contain a stylesheet");
+    }
+    return (Stylesheet)node;
+  }
+
+  private Node node() throws IOException {
+    int tag = varint();
+    if (tag == 0) {
+      return null;
+    }
+    if (tag > NODE_TYPES.length) {
+      throw new IOException("Unknown node tag " + tag);
+    }
+
+    int lineOffset = varint();
+    int charOffset = varint();
+    NodeType type = NODE_TYPES[tag - 1];
+    BaseNode result = ruleNode(type);
+    if (result == null) {
+      result = selectorNode(type);
+    }
+    if (result == null) {
+      result = valueNode(type);
+    }
+    if (result == null) {
+      throw new IOException("Unable to load node type " + type);
+    }
+
+    result.setLineOffset(lineOffset);
+    result.setCharOffset(charOffset);
+    return result;
+  }
+
+  /**
+   * Reads blocks, rules and other statements.
+   * Returns null if the type is not handled here.
+   */
+  private BaseNode ruleNode(NodeType type) throws IOException {
+    switch (type) {
+
+      case ARGUMENT:
+        return new Argument(string(), node());
+
+      case BLOCK:
+        return block();
+
+      case BLOCK_DIRECTIVE:
+      {
+        String name = string();
+        return blockNode(new BlockDirective(name, asBlock(node())));
+      }
+
+      case COMMENT:
+        return new Comment(string(), bool(), bool());
+
+      case DEFINITION:
+      {
+        Definition def = new Definition(string(), node(), bool());
+        def.fileName(path());
+        return def;
+      }
+
+      case DETACHED_RULESET:
+        return blockNode(new DetachedRuleset(asBlock(node())));
+
+      case DIRECTIVE:
+      {
+        Directive directive = new Directive(string(), node());
+        directive.fileName(path());
+        return directive;
+      }
+
+      case DUMMY:
+        return new Dummy();
+
+      case GENERIC_BLOCK:
+        return blockNode(new GenericBlock(asBlock(node())));
+
+      case IMPORT:
+      {
+        Import imp = new Import(node(), (Features)node(), bool());
+        imp.suppress(bool());
+        imp.rootPath(path());
+        imp.fileName(path());
+        imp.parseOffset(varint());
+        return imp;
+      }
+
+      case IMPORT_MARKER:
+        return new ImportMarker((Import)node(), bool());
+
+      case MEDIA:
+      {
+        Features features = (Features)node();
+        return blockNode(new Media(features, asBlock(node())));
+      }
+
+      case MIXIN:
+      {
+        String name = string();
+        MixinParams params = (MixinParams)node();
+        Guard guard = (Guard)node();
+        return blockNode(new Mixin(name, params, guard, asBlock(node())));
+      }
+
+      case MIXIN_ARGS:
+      {
+        MixinCallArgs args = new MixinCallArgs((char)varint());
+        for (Node arg : items()) {
+          args.add((Argument)arg);
+        }
+        return args;
+      }
+
+      case MIXIN_CALL:
+      {
+        MixinCall call = new MixinCall((Selector)node(), (MixinCallArgs)node(), bool());
+        call.fileName(path());
+        return call;
+      }
+
+      case MIXIN_MARKER:
+      {
+        MixinMarker marker = new MixinMarker((MixinCall)node(), (BlockNode)node(), bool());
+        marker.fileName(path());
+        return marker;
+      }
+
+      case MIXIN_PARAMS:
+      {
+        MixinParams params = new MixinParams();
+        for (Node param : items()) {
+          params.add((Parameter)param);
+        }
+        return params;
+      }
+
+      case PARAMETER:
+      {
+        String name = string();
+        Node value = node();
+        return bool() ? new Parameter(name, true) : new Parameter(name, value);
+      }
+
+      case PARSE_ERROR:
+      {
+        ParseError error = new ParseError();
+        error.filePath(path());
+        error.errorMessage(string());
+        return error;
+      }
+
+      case RULE:
+      {
+        Rule rule = new Rule(node(), node(), bool());
+        rule.fileName(path());
+        return rule;
+      }
+
+      case RULESET:
+      {
+        Selectors selectors = (Selectors)node();
+        return blockNode(new Ruleset(selectors, asBlock(node())));
+      }
+
+      case STYLESHEET:
+        return blockNode(new Stylesheet(asBlock(node())));
+
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Reads selectors, guards and media features.
+   * Returns null if the type is not handled here.
+   */
+  private BaseNode selectorNode(NodeType type) throws IOException {
+    switch (type) {
+
+      case ATTRIBUTE_ELEMENT:
+      {
+        AttributeElement element = new AttributeElement();
+        for (Node part : items()) {
+          element.add(part);
+        }
+        return element;
+      }
+
+      case COMBINATOR:
+        return new Combinator(COMBINATOR_TYPES[varint()]);
+
+      case CONDITION:
+        return new Condition(OPERATORS[varint()], node(), node(), bool());
+
+      case EXTEND:
+        return new Extend((Selector)node(), bool());
+
+      case EXTEND_LIST:
+      {
+        ExtendList list = new ExtendList(bool());
+        for (Node value : items()) {
+          list.add((Extend)value);
+        }
+        return list;
+      }
+
+      case FEATURE:
+        return new Feature(node(), node());
+
+      case FEATURES:
+      {
+        Features features = new Features();
+        for (Node feature : items()) {
+          features.add(feature);
+        }
+        return features;
+      }
+
+      case GUARD:
+      {
+        Guard guard = new Guard();
+        for (Node cond : items()) {
+          guard.add((Condition)cond);
+        }
+        return guard;
+      }
+
+      case SELECTOR:
+      {
+        Selector selector = new Selector();
+        for (Node part : items()) {
+          selector.add((SelectorPart)part);
+        }
+        ExtendList extendList = (ExtendList)node();
+        if (extendList != null) {
+          selector.extendList(extendList);
+        }
+        selector.guard((Guard)node());
+        return selector;
+      }
+
+      case SELECTORS:
+      {
+        Selectors selectors = new Selectors();
+        for (Node selector : items()) {
+          selectors.add((Selector)selector);
+        }
+        return selectors;
+      }
+
+      case TEXT_ELEMENT:
+        return new TextElement(string());
+
+      case VALUE_ELEMENT:
+        return new ValueElement(node());
+
+      case WILDCARD_ELEMENT:
+        return new WildcardElement();
+
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Reads values.
+   * Returns null if the type is not handled here.
+   */
+  private BaseNode valueNode(NodeType type) throws IOException {
+    switch (type) {
+
+      case ALPHA:
+        return new Alpha(node());
+
+      case ANONYMOUS:
+        return new Anonymous(string());
+
+      case ASSIGNMENT:
+        return new Assignment(string(), node());
+
+      case COLOR:
+        return color();
+
+      case COMPOSITE_PROPERTY:
+        return new CompositeProperty(nodes(), MERGE_MODES[varint()]);
+
+      case DIMENSION:
+      {
+        double value = buf.getDouble();
+        String unit = string();
+        return new Dimension(value, unit == null ? null : Unit.get(unit));
+      }
+
+      case EXPRESSION:
+        return new Expression(items());
+
+      case EXPRESSION_LIST:
+        return new ExpressionList(items());
+
+      case FALSE:
+        return new False();
+
+      case FUNCTION_CALL:
+      {
+        String name = string();
+        boolean noImplementation = bool();
+        return new FunctionCall(name, nodes(), noImplementation);
+      }
+
+      case KEYWORD:
+        return new Keyword(string());
+
+      case OPERATION:
+      {
+        Operation op = new Operation(OPERATORS[varint()], node(), node());
+        op.setSubExpression(bool());
+        op.setRequireStrictMath(bool());
+        return op;
+      }
+
+      case PAREN:
+        return new Paren(node());
+
+      case PROPERTY:
+        return new Property(string(), MERGE_MODES[varint()]);
+
+      case QUOTED:
+        return new Quoted((char)varint(), bool(), nodes());
+
+      case RATIO:
+        return new Ratio(string());
+
+      case SHORTHAND:
+        return new Shorthand(node(), node());
+
+      case TRUE:
+        return new True();
+
+      case UNICODE_RANGE:
+        return new UnicodeRange(string());
+
+      case URL:
+        return new Url(node());
+
+      case VARIABLE:
+      {
+        String name = string();
+        boolean indirect = bool();
+        return new Variable(indirect ? "@" + name : name, bool(), bool());
+      }
+
+      default:
+        return null;
+    }
+  }
+
+  private Block block() throws IOException {
+    int size = varint();
+    Block block = new Block(Math.max(size, 1));
+    for (int i = 0; i < size; i++) {
+      block.appendNode(node());
+    }
+    return block;
+  }
+
+  private static Block asBlock(Node node) throws IOException {
+    if (!(node instanceof Block)) {
+      throw new IOException("Expected a block, found " + (node == null ? null : node.type()));
+    }
+    return (Block)node;
+  }
+
+  private BlockNode blockNode(BlockNode node) throws IOException {
+    if (bool()) {
+      node.markImportant();
+    }
+    node.fileName(path());
+    return node;
+  }
+
+  private BaseNode color() throws IOException {
+    int kind = varint();
+    switch (kind) {
+
+      case COLOR_KEYWORD:
+      {
+        KeywordColor color = new KeywordColor(string(), varint(), varint(), varint());
+        color.forceHex(bool());
+        return color;
+      }
+
+      case COLOR_RGB:
+      {
+        RGBColor color = new RGBColor(varint(), varint(), varint(), buf.getDouble(), bool());
+        color.forceHex(bool());
+        return color;
+      }
+
+      case COLOR_HSL:
+        return new HSLColor(buf.getDouble(), buf.getDouble(), buf.getDouble(), buf.getDouble());
+
+      default:
+        throw new IOException("Unknown color kind " + kind);
+    }
+  }
+
+  /**
+   * Reads a list of nodes, returning null if a null list was written.
+   */
+  private List<Node> nodes() throws IOException {
+    int size = varint();
+    if (size == 0) {
+      return null;
+    }
+    size--;
+    List<Node> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(node());
+    }
+    return result;
+  }
+
+  /**
+   * Reads a list of nodes, returning an empty list if a null list was written.
+   */
+  private List<Node> items() throws IOException {
+    List<Node> result = nodes();
+    return result == null ? new ArrayList<Node>() : result;
+  }
+
+  private Path path() throws IOException {
+    int index = varint();
+    if (index == 0) {
+      return null;
+    }
+    Path path = paths[index - 1];
+    if (path == null) {
+      path = Paths.get(strings[index - 1]);
+      paths[index - 1] = path;
+    }
+    return path;
+  }
+
+  private String string() throws IOException {
+    int index = varint();
+    return index == 0 ? null : strings[index - 1];
+  }
+
+  private boolean bool() throws IOException {
+    return varint() != 0;
+  }
+
+  private int varint() throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = buf.get();
+      result |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IOException("Malformed variable-length integer");
+  }
+
+}
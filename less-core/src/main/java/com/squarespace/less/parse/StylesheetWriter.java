@@ -0,0 +1,705 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.core.LessInternalException;
+import com.squarespace.less.model.Alpha;
+import com.squarespace.less.model.Anonymous;
+import com.squarespace.less.model.Argument;
+import com.squarespace.less.model.Assignment;
+import com.squarespace.less.model.AttributeElement;
+import com.squarespace.less.model.BaseNode;
+import com.squarespace.less.model.Block;
+import com.squarespace.less.model.BlockDirective;
+import com.squarespace.less.model.BlockNode;
+import com.squarespace.less.model.Combinator;
+import com.squarespace.less.model.Comment;
+import com.squarespace.less.model.CompositeProperty;
+import com.squarespace.less.model.Condition;
+import com.squarespace.less.model.Definition;
+import com.squarespace.less.model.Dimension;
+import com.squarespace.less.model.Directive;
+import com.squarespace.less.model.Expression;
+import com.squarespace.less.model.ExpressionList;
+import com.squarespace.less.model.Extend;
+import com.squarespace.less.model.ExtendList;
+import com.squarespace.less.model.Feature;
+import com.squarespace.less.model.Features;
+import com.squarespace.less.model.FunctionCall;
+import com.squarespace.less.model.Guard;
+import com.squarespace.less.model.HSLColor;
+import com.squarespace.less.model.Import;
+import com.squarespace.less.model.ImportMarker;
+import com.squarespace.less.model.Keyword;
+import com.squarespace.less.model.KeywordColor;
+import com.squarespace.less.model.Media;
+import com.squarespace.less.model.Mixin;
+import com.squarespace.less.model.MixinCall;
+import com.squarespace.less.model.MixinCallArgs;
+import com.squarespace.less.model.MixinMarker;
+import com.squarespace.less.model.MixinParams;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.Operation;
+import com.squarespace.less.model.Parameter;
+import com.squarespace.less.model.Paren;
+import com.squarespace.less.model.ParseError;
+import com.squarespace.less.model.Property;
+import com.squarespace.less.model.Quoted;
+import com.squarespace.less.model.RGBColor;
+import com.squarespace.less.model.Ratio;
+import com.squarespace.less.model.Rule;
+import com.squarespace.less.model.Ruleset;
+import com.squarespace.less.model.Selector;
+import com.squarespace.less.model.Selectors;
+import com.squarespace.less.model.Shorthand;
+import com.squarespace.less.model.Stylesheet;
+import com.squarespace.less.model.TextElement;
+import com.squarespace.less.model.UnicodeRange;
+import com.squarespace.less.model.Unit;
+import com.squarespace.less.model.Url;
+import com.squarespace.less.model.ValueElement;
+import com.squarespace.less.model.Variable;
+
+
+/**
+ * Serializes a parsed {@link Stylesheet} to a compact binary format which
+ * {@link StylesheetReader} can load without parsing the source again.
+ *
+ * The format starts with a magic number and version, followed by a table of
+ * every distinct string in the tree. The nodes follow in depth-first order,
+ * each as a one-byte tag, its position and then its fields. Integers are
+ * variable-length encoded and strings are written as indexes into the table.
+ */
+public class StylesheetWriter {
+
+  /**
+   * Identifies a serialized stylesheet: "LESB".
+   */
+  public static final int MAGIC = 0x4c455342;
+
+  /**
+   * Version of the format. This must change whenever the encoding of any node,
+   * or the order of {@link com.squarespace.less.model.NodeType} or any other
+   * enum written by ordinal, changes.
+   */
+  public static final int VERSION = 1;
+
+  static final int COLOR_RGB = 0;
+
+  static final int COLOR_HSL = 1;
+
+  static final int COLOR_KEYWORD = 2;
+
+  /**
+   * Index of each distinct string, in the order first written.
+   */
+  private final Map<String, Integer> strings = new HashMap<>();
+
+  /**
+   * Strings in index order.
+   */
+  private final FlexList<String> table = new FlexList<>(64);
+
+  /**
+   * Encoded nodes.
+   */
+  private final Output body = new Output(4096);
+
+  private StylesheetWriter() {
+  }
+
+  /**
+   * Serializes the stylesheet to a byte array.
+   */
+  public static byte[] serialize(Stylesheet sheet) {
+    StylesheetWriter writer = new StylesheetWriter();
+    writer.node(sheet);
+    return writer.finish();
+  }
+
+  /**
+   * Serializes the stylesheet to a file.
+   */
+  public static void write(Stylesheet sheet, Path path) throws IOException {
+    Files.write(path, serialize(sheet));
+  }
+
+  private byte[] finish() {
+    Output out = new Output(body.size + 1024);
+    out.int32(MAGIC);
+    out.varint(VERSION);
+    int size = table.size();
+    out.varint(size);
+    for (int i = 0; i < size; i++) {
+      byte[] bytes = table.get(i).getBytes(StandardCharsets.UTF_8);
+      out.varint(bytes.length);
+      out.bytes(bytes, bytes.length);
+    }
+    out.bytes(body.buf, body.size);
+    return Arrays.copyOf(out.buf, out.size);
+  }
+
+  private void node(Node node) {
+    if (node == null) {
+      body.varint(0);
+      return;
+    }
+
+    body.varint(node.type().ordinal() + 1);
+    BaseNode base = (BaseNode)node;
+    body.varint(base.lineOffset());
+    body.varint(base.charOffset());
+
+    if (!ruleFields(node) && !selectorFields(node) && !valueFields(node)) {
+      throw new LessInternalException("Serious error: unable to serialize node type " + node.type());
+    }
+  }
+
+  /**
+   * Writes the fields of blocks, rules and other statements.
+   * Returns false if the node is not handled here.
+   */
+  private boolean ruleFields(Node node) {
+    switch (node.type()) {
+
+      case ARGUMENT:
+      {
+        Argument arg = (Argument)node;
+        string(arg.name());
+        node(arg.value());
+        break;
+      }
+
+      case BLOCK:
+        block((Block)node);
+        break;
+
+      case BLOCK_DIRECTIVE:
+        string(((BlockDirective)node).name());
+        blockNode((BlockNode)node);
+        break;
+
+      case COMMENT:
+      {
+        Comment comment = (Comment)node;
+        string(comment.body());
+        bool(comment.block());
+        bool(comment.newline());
+        break;
+      }
+
+      case DEFINITION:
+      {
+        Definition def = (Definition)node;
+        string(def.name());
+        node(def.value());
+        bool(def.important());
+        path(def.fileName());
+        break;
+      }
+
+      case DETACHED_RULESET:
+      case GENERIC_BLOCK:
+      case STYLESHEET:
+        blockNode((BlockNode)node);
+        break;
+
+      case DIRECTIVE:
+      {
+        Directive directive = (Directive)node;
+        string(directive.name());
+        node(directive.value());
+        path(directive.fileName());
+        break;
+      }
+
+      case IMPORT:
+      {
+        Import imp = (Import)node;
+        node(imp.path());
+        node(imp.features());
+        bool(imp.once());
+        bool(imp.suppress());
+        path(imp.rootPath());
+        path(imp.fileName());
+        body.varint(imp.parseOffset());
+        break;
+      }
+
+      case IMPORT_MARKER:
+      {
+        ImportMarker marker = (ImportMarker)node;
+        node(marker.importStatement());
+        bool(marker.beginning());
+        break;
+      }
+
+      case DUMMY:
+        break;
+
+      case MEDIA:
+        node(((Media)node).features());
+        blockNode((BlockNode)node);
+        break;
+
+      case MIXIN:
+      {
+        Mixin mixin = (Mixin)node;
+        string(mixin.name());
+        node(mixin.params());
+        node(mixin.guard());
+        blockNode(mixin);
+        break;
+      }
+
+      case MIXIN_ARGS:
+      {
+        MixinCallArgs args = (MixinCallArgs)node;
+        body.varint(args.delim());
+        nodes(args.args());
+        break;
+      }
+
+      case MIXIN_CALL:
+      {
+        MixinCall call = (MixinCall)node;
+        node(call.selector());
+        node(call.args());
+        bool(call.important());
+        path(call.fileName());
+        break;
+      }
+
+      case MIXIN_MARKER:
+      {
+        MixinMarker marker = (MixinMarker)node;
+        node(marker.mixinCall());
+        node(marker.mixinDefinition());
+        bool(marker.beginning());
+        path(marker.fileName());
+        break;
+      }
+
+      case MIXIN_PARAMS:
+        nodes(((MixinParams)node).params());
+        break;
+
+      case PARAMETER:
+      {
+        Parameter param = (Parameter)node;
+        string(param.name());
+        node(param.value());
+        bool(param.variadic());
+        break;
+      }
+
+      case PARSE_ERROR:
+      {
+        ParseError error = (ParseError)node;
+        path(error.filePath());
+        string(error.errorMessage());
+        break;
+      }
+
+      case RULE:
+      {
+        Rule rule = (Rule)node;
+        node(rule.property());
+        node(rule.value());
+        bool(rule.important());
+        path(rule.fileName());
+        break;
+      }
+
+      case RULESET:
+        node(((Ruleset)node).selectors());
+        blockNode((BlockNode)node);
+        break;
+
+      default:
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Writes the fields of selectors, guards and media features.
+   * Returns false if the node is not handled here.
+   */
+  private boolean selectorFields(Node node) {
+    switch (node.type()) {
+
+      case ATTRIBUTE_ELEMENT:
+        nodes(((AttributeElement)node).parts());
+        break;
+
+      case COMBINATOR:
+        body.varint(((Combinator)node).combinatorType().ordinal());
+        break;
+
+      case CONDITION:
+      {
+        Condition cond = (Condition)node;
+        body.varint(cond.operator().ordinal());
+        node(cond.left());
+        node(cond.right());
+        bool(cond.negate());
+        break;
+      }
+
+      case EXTEND:
+      {
+        Extend extend = (Extend)node;
+        node(extend.targetSelector());
+        bool(extend.matchAll());
+        break;
+      }
+
+      case EXTEND_LIST:
+      {
+        ExtendList list = (ExtendList)node;
+        bool(list.atRuleLevel());
+        nodes(list.values());
+        break;
+      }
+
+      case FEATURE:
+      {
+        Feature feature = (Feature)node;
+        node(feature.property());
+        node(feature.value());
+        break;
+      }
+
+      case FEATURES:
+        nodes(((Features)node).features());
+        break;
+
+      case GUARD:
+        nodes(((Guard)node).conditions());
+        break;
+
+      case WILDCARD_ELEMENT:
+        break;
+
+      case SELECTOR:
+      {
+        Selector selector = (Selector)node;
+        nodes(selector.parts());
+        node(selector.extendList());
+        node(selector.guard());
+        break;
+      }
+
+      case SELECTORS:
+        nodes(((Selectors)node).selectors());
+        break;
+
+      case TEXT_ELEMENT:
+        string(((TextElement)node).name());
+        break;
+
+      case VALUE_ELEMENT:
+        node(((ValueElement)node).value());
+        break;
+
+      default:
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Writes the fields of values.
+   * Returns false if the node is not handled here.
+   */
+  private boolean valueFields(Node node) {
+    switch (node.type()) {
+
+      case ALPHA:
+        node(((Alpha)node).value());
+        break;
+
+      case ANONYMOUS:
+        string(((Anonymous)node).value());
+        break;
+
+      case ASSIGNMENT:
+      {
+        Assignment assign = (Assignment)node;
+        string(assign.name());
+        node(assign.value());
+        break;
+      }
+
+      case COLOR:
+        color(node);
+        break;
+
+      case COMPOSITE_PROPERTY:
+      {
+        CompositeProperty property = (CompositeProperty)node;
+        nodes(property.segments());
+        body.varint(property.mergeMode().ordinal());
+        break;
+      }
+
+      case DIMENSION:
+      {
+        Dimension dim = (Dimension)node;
+        body.float64(dim.value());
+        Unit unit = dim.unit();
+        string(unit == null ? null : unit.repr());
+        break;
+      }
+
+      case EXPRESSION:
+        nodes(((Expression)node).values());
+        break;
+
+      case EXPRESSION_LIST:
+        nodes(((ExpressionList)node).expressions());
+        break;
+
+      case FUNCTION_CALL:
+      {
+        FunctionCall call = (FunctionCall)node;
+        string(call.name());
+        bool(call.noImplementation());
+        nodes(call.args());
+        break;
+      }
+
+      case FALSE:
+      case TRUE:
+        break;
+
+      case KEYWORD:
+        string(((Keyword)node).value());
+        break;
+
+      case OPERATION:
+      {
+        Operation op = (Operation)node;
+        body.varint(op.operator().ordinal());
+        node(op.left());
+        node(op.right());
+        bool(op.isSubExpression());
+        bool(op.requiresStrictMath());
+        break;
+      }
+
+      case PAREN:
+        node(((Paren)node).value());
+        break;
+
+      case PROPERTY:
+      {
+        Property property = (Property)node;
+        string(property.name());
+        body.varint(property.mergeMode().ordinal());
+        break;
+      }
+
+      case QUOTED:
+      {
+        Quoted quoted = (Quoted)node;
+        body.varint(quoted.delimiter());
+        bool(quoted.escaped());
+        nodes(quoted.parts());
+        break;
+      }
+
+      case RATIO:
+        string(((Ratio)node).value());
+        break;
+
+      case SHORTHAND:
+      {
+        Shorthand shorthand = (Shorthand)node;
+        node(shorthand.left());
+        node(shorthand.right());
+        break;
+      }
+
+      case UNICODE_RANGE:
+        string(((UnicodeRange)node).value());
+        break;
+
+      case URL:
+        node(((Url)node).value());
+        break;
+
+      case VARIABLE:
+      {
+        Variable var = (Variable)node;
+        string(var.name());
+        bool(var.indirect());
+        bool(var.curly());
+        bool(var.ruleset());
+        break;
+      }
+
+      default:
+        return false;
+    }
+    return true;
+  }
+
+  private void block(Block block) {
+    FlexList<Node> rules = block.rules();
+    int size = rules.size();
+    body.varint(size);
+    for (int i = 0; i < size; i++) {
+      node(rules.get(i));
+    }
+  }
+
+  private void blockNode(BlockNode node) {
+    node(node.block());
+    bool(node.important());
+    path(node.fileName());
+  }
+
+  private void color(Node node) {
+    if (node instanceof KeywordColor) {
+      KeywordColor color = (KeywordColor)node;
+      body.varint(COLOR_KEYWORD);
+      string(color.keyword());
+      body.varint(color.red());
+      body.varint(color.green());
+      body.varint(color.blue());
+      bool(color.forceHex());
+
+    } else if (node instanceof RGBColor) {
+      RGBColor color = (RGBColor)node;
+      body.varint(COLOR_RGB);
+      body.varint(color.red());
+      body.varint(color.green());
+      body.varint(color.blue());
+      body.float64(color.alpha());
+      bool(color.fromKeyword());
+      bool(color.forceHex());
+
+    } else {
+      HSLColor color = (HSLColor)node;
+      body.varint(COLOR_HSL);
+      body.float64(color.hue());
+      body.float64(color.saturation());
+      body.float64(color.lightness());
+      body.float64(color.alpha());
+    }
+  }
+
+  /**
+   * Writes a list of nodes, distinguishing a null list from an empty one.
+   */
+  private void nodes(List<? extends Node> nodes) {
+    if (nodes == null) {
+      body.varint(0);
+      return;
+    }
+    int size = nodes.size();
+    body.varint(size + 1);
+    for (int i = 0; i < size; i++) {
+      node(nodes.get(i));
+    }
+  }
+
+  private void path(Path path) {
+    string(path == null ? null : path.toString());
+  }
+
+  private void string(String value) {
+    if (value == null) {
+      body.varint(0);
+      return;
+    }
+    Integer index = strings.get(value);
+    if (index == null) {
+      index = table.size();
+      strings.put(value, index);
+      table.append(value);
+    }
+    body.varint(index + 1);
+  }
+
+  private void bool(boolean flag) {
+    body.varint(flag ? 1 : 0);
+  }
+
+  /**
+   * Growable byte buffer.
+   */
+  private static class Output {
+
+    private byte[] buf;
+
+    private int size;
+
+    Output(int capacity) {
+      this.buf = new byte[capacity];
+    }
+
+    void int32(int value) {
+      ensure(4);
+      buf[size++] = (byte)(value >>> 24);
+      buf[size++] = (byte)(value >>> 16);
+      buf[size++] = (byte)(value >>> 8);
+      buf[size++] = (byte)value;
+    }
+
+    void varint(int value) {
+      ensure(5);
+      while ((value & ~0x7f) != 0) {
+        buf[size++] = (byte)((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      buf[size++] = (byte)value;
+    }
+
+    void float64(double value) {
+      long bits = Double.doubleToLongBits(value);
+      int32((int)(bits >>> 32));
+      int32((int)bits);
+    }
+
+    void bytes(byte[] src, int length) {
+      ensure(length);
+      System.arraycopy(src, 0, buf, size, length);
+      size += length;
+    }
+
+    private void ensure(int length) {
+      if (size + length > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + length));
+      }
+    }
+
+  }
+
+}
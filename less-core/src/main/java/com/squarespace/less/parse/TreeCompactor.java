@@ -0,0 +1,303 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.squarespace.less.model.Alpha;
+import com.squarespace.less.model.Argument;
+import com.squarespace.less.model.Assignment;
+import com.squarespace.less.model.AttributeElement;
+import com.squarespace.less.model.Block;
+import com.squarespace.less.model.BlockNode;
+import com.squarespace.less.model.CompositeProperty;
+import com.squarespace.less.model.Condition;
+import com.squarespace.less.model.Definition;
+import com.squarespace.less.model.Directive;
+import com.squarespace.less.model.Expression;
+import com.squarespace.less.model.ExpressionList;
+import com.squarespace.less.model.Extend;
+import com.squarespace.less.model.ExtendList;
+import com.squarespace.less.model.Feature;
+import com.squarespace.less.model.Features;
+import com.squarespace.less.model.FunctionCall;
+import com.squarespace.less.model.Guard;
+import com.squarespace.less.model.Import;
+import com.squarespace.less.model.ImportMarker;
+import com.squarespace.less.model.Media;
+import com.squarespace.less.model.Mixin;
+import com.squarespace.less.model.MixinCall;
+import com.squarespace.less.model.MixinCallArgs;
+import com.squarespace.less.model.MixinParams;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.Operation;
+import com.squarespace.less.model.Parameter;
+import com.squarespace.less.model.Paren;
+import com.squarespace.less.model.Quoted;
+import com.squarespace.less.model.Rule;
+import com.squarespace.less.model.Ruleset;
+import com.squarespace.less.model.Selector;
+import com.squarespace.less.model.Selectors;
+import com.squarespace.less.model.Shorthand;
+import com.squarespace.less.model.Url;
+import com.squarespace.less.model.ValueElement;
+
+
+/**
+ * Trims the storage of a parsed or evaluated tree so that a long-lived tree
+ * holds only what it needs. Blocks start with room for several rules and
+ * lists grow by doubling, so a freshly parsed tree is full of partly empty
+ * arrays. Each block's rule list and each list-valued field is trimmed to its
+ * exact size, and each block's variable cache is dropped until next used.
+ *
+ * The tree must not be evaluated or rendered while it is being compacted.
+ */
+public class TreeCompactor {
+
+  private TreeCompactor() {
+  }
+
+  /**
+   * Compacts the node and all of its descendants.
+   */
+  public static void compact(Node node) {
+    if (node == null) {
+      return;
+    }
+
+    switch (node.type()) {
+
+      case ALPHA:
+        compact(((Alpha)node).value());
+        break;
+
+      case ARGUMENT:
+        compact(((Argument)node).value());
+        break;
+
+      case ASSIGNMENT:
+        compact(((Assignment)node).value());
+        break;
+
+      case ATTRIBUTE_ELEMENT:
+        nodes(((AttributeElement)node).parts());
+        break;
+
+      case BLOCK:
+        block((Block)node);
+        break;
+
+      case BLOCK_DIRECTIVE:
+      case DETACHED_RULESET:
+      case GENERIC_BLOCK:
+      case STYLESHEET:
+        block(((BlockNode)node).block());
+        break;
+
+      case COMPOSITE_PROPERTY:
+        nodes(((CompositeProperty)node).segments());
+        break;
+
+      case CONDITION:
+      {
+        Condition cond = (Condition)node;
+        compact(cond.left());
+        compact(cond.right());
+        break;
+      }
+
+      case DEFINITION:
+        compact(((Definition)node).value());
+        break;
+
+      case DIRECTIVE:
+        compact(((Directive)node).value());
+        break;
+
+      case EXPRESSION:
+        nodes(((Expression)node).values());
+        break;
+
+      case EXPRESSION_LIST:
+        nodes(((ExpressionList)node).expressions());
+        break;
+
+      case EXTEND:
+        compact(((Extend)node).targetSelector());
+        break;
+
+      case EXTEND_LIST:
+        nodes(((ExtendList)node).values());
+        break;
+
+      case FEATURE:
+      {
+        Feature feature = (Feature)node;
+        compact(feature.property());
+        compact(feature.value());
+        break;
+      }
+
+      case FEATURES:
+        nodes(((Features)node).features());
+        break;
+
+      case FUNCTION_CALL:
+        nodes(((FunctionCall)node).args());
+        break;
+
+      case GUARD:
+        nodes(((Guard)node).conditions());
+        break;
+
+      case IMPORT:
+      {
+        Import imp = (Import)node;
+        compact(imp.path());
+        compact(imp.features());
+        break;
+      }
+
+      case IMPORT_MARKER:
+        compact(((ImportMarker)node).importStatement());
+        break;
+
+      case MEDIA:
+        compact(((Media)node).features());
+        block(((Media)node).block());
+        break;
+
+      case MIXIN:
+      {
+        Mixin mixin = (Mixin)node;
+        compact(mixin.params());
+        compact(mixin.guard());
+        block(mixin.block());
+        break;
+      }
+
+      case MIXIN_ARGS:
+        nodes(((MixinCallArgs)node).args());
+        break;
+
+      case MIXIN_CALL:
+      {
+        MixinCall call = (MixinCall)node;
+        compact(call.selector());
+        compact(call.args());
+        break;
+      }
+
+      case MIXIN_PARAMS:
+        nodes(((MixinParams)node).params());
+        break;
+
+      case OPERATION:
+      {
+        Operation op = (Operation)node;
+        compact(op.left());
+        compact(op.right());
+        break;
+      }
+
+      case PARAMETER:
+        compact(((Parameter)node).value());
+        break;
+
+      case PAREN:
+        compact(((Paren)node).value());
+        break;
+
+      case QUOTED:
+        nodes(((Quoted)node).parts());
+        break;
+
+      case RULE:
+      {
+        Rule rule = (Rule)node;
+        compact(rule.property());
+        compact(rule.value());
+        break;
+      }
+
+      case RULESET:
+        compact(((Ruleset)node).selectors());
+        block(((Ruleset)node).block());
+        break;
+
+      case SELECTOR:
+      {
+        Selector selector = (Selector)node;
+        nodes(selector.parts());
+        compact(selector.extendList());
+        compact(selector.guard());
+        break;
+      }
+
+      case SELECTORS:
+        nodes(((Selectors)node).selectors());
+        break;
+
+      case SHORTHAND:
+      {
+        Shorthand shorthand = (Shorthand)node;
+        compact(shorthand.left());
+        compact(shorthand.right());
+        break;
+      }
+
+      case URL:
+        compact(((Url)node).value());
+        break;
+
+      case VALUE_ELEMENT:
+        compact(((ValueElement)node).value());
+        break;
+
+      default:
+        // Leaf values have no storage to trim. Mixin markers refer to
+        // nodes which are compacted where they occur in the tree.
+        break;
+    }
+  }
+
+  private static void block(Block block) {
+    if (block == null) {
+      return;
+    }
+    block.compact();
+    int size = block.rules().size();
+    for (int i = 0; i < size; i++) {
+      compact(block.rules().get(i));
+    }
+  }
+
+  private static void nodes(List<? extends Node> nodes) {
+    if (nodes == null) {
+      return;
+    }
+    if (nodes instanceof ArrayList) {
+      ((ArrayList<? extends Node>)nodes).trimToSize();
+    }
+    int size = nodes.size();
+    for (int i = 0; i < size; i++) {
+      compact(nodes.get(i));
+    }
+  }
+
+}
@@ -25,6 +25,7 @@ import com.squarespace.less.exec.Function;
 import com.squarespace.less.exec.Registry;
 import com.squarespace.less.model.Dimension;
 import com.squarespace.less.model.Node;
+import com.squarespace.less.model.ValueCache;
 
 
 /**
@@ -39,7 +40,7 @@ public class ListFunctions implements Registry<Function> {
     public Node invoke(ExecEnv env, List<Node> args) throws LessException {
       Node arg = args.get(0);
       List<Node> values = LessUtils.listValues(arg);
-      return (values == null) ? new Dimension(1) : new Dimension(values.size());
+      return (values == null) ? ValueCache.dimension(1) : ValueCache.dimension(values.size());
     }
   };
 
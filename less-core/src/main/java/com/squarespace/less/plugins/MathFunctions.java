@@ -27,6 +27,7 @@ import com.squarespace.less.model.Node;
 import com.squarespace.less.model.Unit;
 import com.squarespace.less.model.UnitConversions;
 import com.squarespace.less.model.Units;
+import com.squarespace.less.model.ValueCache;
 
 
 /**
@@ -40,7 +41,7 @@ public class MathFunctions implements Registry<Function> {
   public static final Function ABS = new Function("abs", "d") {
     public Node invoke(ExecEnv env, java.util.List<Node> args) throws LessException {
       Dimension dim = (Dimension)args.get(0);
-      return new Dimension(Math.abs(dim.value()), dim.unit());
+      return ValueCache.dimension(Math.abs(dim.value()), dim.unit());
     }
   };
 
@@ -48,7 +49,7 @@ public class MathFunctions implements Registry<Function> {
     @Override
     public Node invoke(ExecEnv env, List<Node> args) throws LessException {
       double value = Math.asin(((Dimension)args.get(0)).value());
-      return new Dimension(value, Units.RAD);
+      return ValueCache.dimension(value, Units.RAD);
     }
   };
 
@@ -56,7 +57,7 @@ public class MathFunctions implements Registry<Function> {
     @Override
     public Node invoke(ExecEnv env, List<Node> args) throws LessException {
       double value = Math.acos(((Dimension)args.get(0)).value());
-      return new Dimension(value, Units.RAD);
+      return ValueCache.dimension(value, Units.RAD);
     }
   };
 
@@ -64,7 +65,7 @@ public class MathFunctions implements Registry<Function> {
     @Override
     public Node invoke(ExecEnv env, List<Node> args) throws LessException {
       double value = Math.atan(((Dimension)args.get(0)).value());
-      return new Dimension(value, Units.RAD);
+      return ValueCache.dimension(value, Units.RAD);
     }
   };
 
@@ -72,7 +73,7 @@ public class MathFunctions implements Registry<Function> {
     @Override
     public Node invoke(ExecEnv env, List<Node> args) throws LessException {
       Dimension dim = (Dimension)args.get(0);
-      return new Dimension(Math.ceil(dim.value()), dim.unit());
+      return ValueCache.dimension(Math.ceil(dim.value()), dim.unit());
     }
   };
 
@@ -87,7 +88,7 @@ public class MathFunctions implements Registry<Function> {
     @Override
     public Node invoke(ExecEnv env, List<Node> args) throws LessException {
       Dimension dim = (Dimension)args.get(0);
-      return new Dimension(Math.floor(dim.value()), dim.unit());
+      return ValueCache.dimension(Math.floor(dim.value()), dim.unit());
     }
   };
 
@@ -116,7 +117,7 @@ public class MathFunctions implements Registry<Function> {
       if (divisor != 0.0) {
         result = dividend.value() % divisor;
       }
-      return new Dimension(result, dividend.unit());
+      return ValueCache.dimension(result, dividend.unit());
     }
   };
 
@@ -124,14 +125,14 @@ public class MathFunctions implements Registry<Function> {
     @Override
     public Node invoke(ExecEnv env, List<Node> args) throws LessException {
       Dimension dim = (Dimension)args.get(0);
-      return new Dimension(dim.value() * 100, Units.PERCENTAGE);
+      return ValueCache.dimension(dim.value() * 100, Units.PERCENTAGE);
     }
   };
 
   public static final Function PI = new Function("pi", "") {
     @Override
     public Node invoke(ExecEnv env, List<Node> args) throws LessException {
-      return new Dimension(Math.PI);
+      return ValueCache.dimension(Math.PI);
     }
   };
 
@@ -141,7 +142,7 @@ public class MathFunctions implements Registry<Function> {
       Dimension base = (Dimension)args.get(0);
       Dimension exp = (Dimension)args.get(1);
       double value = Math.pow(base.value(), exp.value());
-      return new Dimension(value, base.unit());
+      return ValueCache.dimension(value, base.unit());
     }
   };
 
@@ -155,7 +156,7 @@ public class MathFunctions implements Registry<Function> {
         places = Math.max(((Dimension)args.get(1)).value(), 0);
       }
       double scale = Math.pow(10, places);
-      return new Dimension(Math.round(dim.value() * scale) / scale, dim.unit());
+      return ValueCache.dimension(Math.round(dim.value() * scale) / scale, dim.unit());
     }
   };
 
@@ -170,7 +171,7 @@ public class MathFunctions implements Registry<Function> {
     @Override
     public Node invoke(ExecEnv env, List<Node> args) throws LessException {
       Dimension dim = (Dimension)args.get(0);
-      return new Dimension(Math.sqrt(dim.value()), dim.unit());
+      return ValueCache.dimension(Math.sqrt(dim.value()), dim.unit());
     }
   };
 
@@ -208,7 +209,7 @@ public class MathFunctions implements Registry<Function> {
       }
 
     }
-    return new Dimension(value, unit);
+    return ValueCache.dimension(value, unit);
   }
 
   private enum TrigFunction {
@@ -238,7 +239,7 @@ public class MathFunctions implements Registry<Function> {
       default:
         throw new RuntimeException("unsupported enum value " + function);
     }
-    return new Dimension(result);
+    return ValueCache.dimension(result);
   }
 
 }
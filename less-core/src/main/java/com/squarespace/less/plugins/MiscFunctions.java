@@ -34,6 +34,7 @@ import com.squarespace.less.model.RGBColor;
 import com.squarespace.less.model.Unit;
 import com.squarespace.less.model.UnitConversions;
 import com.squarespace.less.model.Units;
+import com.squarespace.less.model.ValueCache;
 
 
 /**
@@ -60,7 +61,7 @@ public class MiscFunctions implements Registry<Function> {
       Dimension dim = (Dimension)args.get(0);
       Unit destUnit = toUnit(env, args.get(1));
       double factor = UnitConversions.factor(dim.unit(), destUnit);
-      return new Dimension(dim.value() * factor, destUnit);
+      return ValueCache.dimension(dim.value() * factor, destUnit);
     }
   };
 
@@ -78,7 +79,7 @@ public class MiscFunctions implements Registry<Function> {
       } else if (Units.PERCENTAGE.equals(unit)) {
         return new Quoted('"', false, Arrays.<Node>asList(new Anonymous("%")));
       }
-      return new Keyword(unit.repr());
+      return ValueCache.keyword(unit.repr());
     }
   };
 
@@ -92,7 +93,7 @@ public class MiscFunctions implements Registry<Function> {
       if (args.size() == 2) {
         unit = toUnit(env, args.get(1));
       }
-      return new Dimension(dim.value(), unit);
+      return ValueCache.dimension(dim.value(), unit);
     }
   };
 
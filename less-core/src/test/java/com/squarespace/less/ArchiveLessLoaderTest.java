@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.testng.annotations.Test;
+
+
+public class ArchiveLessLoaderTest {
+
+  private static final Path ROOT = Paths.get("/theme").toAbsolutePath();
+
+  @Test
+  public void testLoader() throws Exception {
+    Path zip = buildArchive();
+    try (ArchiveLessLoader loader = new ArchiveLessLoader(zip, ROOT)) {
+      assertEquals(loader.size(), 3);
+      assertTrue(loader.exists(ROOT.resolve("base.less")));
+      assertTrue(loader.exists(ROOT.resolve("mixins/../mixins/a.less")));
+      assertTrue(loader.exists(ROOT.resolve("notes.txt")));
+      assertFalse(loader.exists(ROOT.resolve("missing.less")));
+      assertFalse(loader.exists(ROOT.resolve("../escape.less")));
+
+      String source = loader.load(ROOT.resolve("mixins/a.less"));
+      assertEquals(source, ".a { color: red; }");
+      assertSame(loader.load(ROOT.resolve("mixins/a.less")), source);
+
+      try {
+        loader.load(ROOT.resolve("missing.less"));
+        fail("Expected LessException");
+      } catch (LessException e) {
+        // expected
+      }
+
+      LessCompiler compiler = new LessCompiler();
+      LessContext ctx = new LessContext(new LessOptions(true), loader);
+      ctx.setFunctionTable(compiler.functionTable());
+      String result = compiler.compile(loader.load(ROOT.resolve("base.less")), ctx, ROOT.resolve("base.less"));
+      assertEquals(result, ".a{color:red}.b{color:blue}");
+
+    } finally {
+      Files.delete(zip);
+    }
+  }
+
+  @Test
+  public void testJailed() throws Exception {
+    Path zip = buildArchive();
+    try (ArchiveLessLoader loader = new ArchiveLessLoader(zip, ROOT, true)) {
+      assertTrue(loader.exists(ROOT.resolve("base.less")));
+      assertFalse(loader.exists(ROOT.resolve("notes.txt")));
+      assertFalse(loader.exists(ROOT.resolve("../escape.less")));
+    } finally {
+      Files.delete(zip);
+    }
+  }
+
+  private static Path buildArchive() throws Exception {
+    Path zip = Files.createTempFile("less-", ".zip");
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+      add(out, "mixins/", null);
+      add(out, "mixins/a.less", ".a { color: red; }");
+      add(out, "base.less", "@import 'mixins/a.less';\n.b { color: blue; }");
+      add(out, "notes.txt", "notes");
+      add(out, "../escape.less", ".escape { color: black; }");
+    }
+    return zip;
+  }
+
+  private static void add(ZipOutputStream out, String name, String source) throws Exception {
+    out.putNextEntry(new ZipEntry(name));
+    if (source != null) {
+      out.write(source.getBytes(StandardCharsets.UTF_8));
+    }
+    out.closeEntry();
+  }
+
+}
@@ -32,6 +32,7 @@ import com.squarespace.less.core.LessHarness;
 import com.squarespace.less.core.LessTestBase;
 import com.squarespace.less.exec.ExecEnv;
 import com.squarespace.less.exec.MixinMatcher;
+import com.squarespace.less.model.Block;
 import com.squarespace.less.model.Definition;
 import com.squarespace.less.model.GenericBlock;
 import com.squarespace.less.model.MixinCall;
@@ -173,8 +174,8 @@ public class ArgumentBinderTest extends LessTestBase {
       expected.put(def.name(), def.value());
     }
 
-    GenericBlock result = bind(params, args);
-    rules = result.block().rules();
+    Block result = bind(params, args);
+    rules = result.rules();
     size = rules.size();
     for (int i = 0; i < size; i++) {
       Definition actual = (Definition)rules.get(i);
@@ -194,7 +195,7 @@ public class ArgumentBinderTest extends LessTestBase {
     }
   }
 
-  private GenericBlock bind(MixinParams params, MixinCallArgs args) throws LessException {
+  private Block bind(MixinParams params, MixinCallArgs args) throws LessException {
     LessHarness h = new LessHarness();
     ExecEnv env = h.context().newEnv();
     Selector sel = new Selector();
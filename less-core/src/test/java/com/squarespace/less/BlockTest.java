@@ -19,13 +19,19 @@ package com.squarespace.less;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import org.testng.annotations.Test;
 
 import com.squarespace.less.core.LessTestBase;
+import com.squarespace.less.model.Block;
 import com.squarespace.less.model.Definition;
+import com.squarespace.less.model.Mixin;
+import com.squarespace.less.model.MixinIndex;
 import com.squarespace.less.model.Rule;
+import com.squarespace.less.model.Ruleset;
 import com.squarespace.less.model.Units;
 
 
@@ -59,4 +65,72 @@ public class BlockTest extends LessTestBase {
     assertTrue(defs.contains(defB.toString().replaceAll("\\s+", " ")));
     assertFalse(defs.contains(rule.toString().replaceAll("\\s+", " ")));
   }
+
+  @Test
+  public void testMixinIndex() {
+    Mixin mixinA = mixin(".a");
+    Ruleset rulesetB = ruleset(selector(element(".b"), element(".c")), selector(element(".a")));
+    Rule rule = rule(prop("x"), anon("y"));
+    Block block = block(mixinA, rule, rulesetB);
+
+    MixinIndex index = block.mixinIndex();
+    assertEquals(index.candidates(".a", 0), new int[] { 0, 2 });
+    assertEquals(index.candidates(".b.c", 0), new int[] { 2 });
+    assertEquals(index.candidates(".b.c", 2), new int[] { });
+    assertEquals(index.candidates(".x.a", 2), new int[] { 0, 2 });
+    assertEquals(index.candidates(".ab", 0), new int[] { });
+    assertSame(block.mixinIndex(), index);
+
+    // Replacing a rule with one found under the same segments keeps the index.
+    block.set(0, mixin(".a"));
+    assertSame(block.mixinIndex(), index);
+
+    block.set(1, mixin(".d"));
+    assertNotSame(block.mixinIndex(), index);
+    assertEquals(block.mixinIndex().candidates(".d", 0), new int[] { 1 });
+
+    // Any other change rebuilds the index.
+    index = block.mixinIndex();
+    block.appendNode(mixin(".e"));
+    assertNotSame(block.mixinIndex(), index);
+    assertEquals(block.mixinIndex().candidates(".e", 0), new int[] { 3 });
+
+    index = block.mixinIndex();
+    block.resetVariableCache();
+    assertNotSame(block.mixinIndex(), index);
+  }
+
+  @Test
+  public void testVariableSplice() {
+    Definition a1 = def("@a", anon("1"));
+    Definition a2 = def("@a", anon("2"));
+    Definition a3 = def("@a", anon("3"));
+    Definition b1 = def("@b", anon("4"));
+    Definition b2 = def("@b", anon("5"));
+    Definition c1 = def("@c", anon("6"));
+    Block block = block(a1, mixin(".x"), b1, mixin(".y"));
+    assertSame(block.resolveDefinition("@a"), a1);
+    assertSame(block.resolveDefinition("@b"), b1);
+
+    // Spliced definitions replace earlier ones but not later ones.
+    assertEquals(block.splice(1, 1, block(a2, b2, c1)), 3);
+    assertSame(block.resolveDefinition("@a"), a2);
+    assertSame(block.resolveDefinition("@b"), b1);
+    assertSame(block.resolveDefinition("@c"), c1);
+
+    // Positions after the first splice are adjusted.
+    assertEquals(block.splice(5, 1, block(a3)), 1);
+    assertSame(block.resolveDefinition("@a"), a3);
+    assertSame(block.resolveDefinition("@b"), b1);
+
+    // Removing a registered definition exposes the one it shadowed.
+    block.splice(4, 1, block());
+    assertSame(block.resolveDefinition("@b"), b2);
+
+    block.prependNode(def("@c", anon("7")));
+    assertSame(block.resolveDefinition("@c"), c1);
+    block.appendNode(b1);
+    assertSame(block.resolveDefinition("@b"), b1);
+  }
+
 }
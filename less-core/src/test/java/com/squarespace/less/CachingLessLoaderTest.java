@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+
+public class CachingLessLoaderTest {
+
+  @Test
+  public void testCaching() throws Exception {
+    Path dir = Files.createTempDirectory("less-");
+    Path path = dir.resolve("a.less");
+    Path missing = dir.resolve("missing.less");
+    try {
+      write(path, ".a { color: red; }");
+      CountingLoader counter = new CountingLoader();
+      CachingLessLoader loader = new CachingLessLoader(counter, 60000);
+
+      // Positive and negative results are both cached.
+      assertTrue(loader.exists(path));
+      assertFalse(loader.exists(missing));
+      assertTrue(loader.exists(path));
+      assertFalse(loader.exists(missing));
+      assertEquals(counter.checks, 2);
+      assertEquals(counter.exists, 0);
+
+      assertEquals(loader.load(path), ".a { color: red; }");
+      assertEquals(loader.load(path), ".a { color: red; }");
+      assertEquals(counter.loads, 1);
+
+      // Within the interval changes are not noticed.
+      write(path, ".a { color: blue; }");
+      assertEquals(loader.load(path), ".a { color: red; }");
+      loader.invalidate(path);
+      assertEquals(loader.load(path), ".a { color: blue; }");
+      assertEquals(counter.loads, 2);
+
+    } finally {
+      Files.deleteIfExists(path);
+      Files.delete(dir);
+    }
+  }
+
+  @Test
+  public void testRevalidate() throws Exception {
+    Path dir = Files.createTempDirectory("less-");
+    Path path = dir.resolve("a.less");
+    try {
+      write(path, ".a { color: red; }");
+      CountingLoader counter = new CountingLoader();
+      CachingLessLoader loader = new CachingLessLoader(counter, 0);
+
+      // Unchanged files are checked but not loaded again.
+      assertEquals(loader.load(path), ".a { color: red; }");
+      assertEquals(loader.load(path), ".a { color: red; }");
+      assertEquals(counter.loads, 1);
+
+      // Changes to the modification time or size are noticed.
+      write(path, ".a { color: blue; }");
+      Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 5000));
+      assertEquals(loader.load(path), ".a { color: blue; }");
+      assertEquals(counter.loads, 2);
+
+      Files.delete(path);
+      assertFalse(loader.exists(path));
+
+    } finally {
+      Files.deleteIfExists(path);
+      Files.delete(dir);
+    }
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    Map<Path, String> storage = new HashMap<>();
+    for (int i = 0; i < 5; i++) {
+      storage.put(Paths.get("f" + i + ".less"), "0123456789");
+    }
+    CachingLessLoader loader = new CachingLessLoader(new HashMapLessLoader(storage), 60000, 4, 25);
+
+    // Missed probes count against the number of entries.
+    for (int i = 0; i < 4; i++) {
+      assertFalse(loader.exists(Paths.get("missing" + i + ".less")));
+    }
+    assertEquals(loader.size(), 4);
+
+    // Contents count against the weight, evicting the least-recently used.
+    loader.load(Paths.get("f0.less"));
+    loader.load(Paths.get("f1.less"));
+    assertEquals(loader.size(), 4);
+    assertEquals(loader.weight(), 20);
+    loader.load(Paths.get("f0.less"));
+    loader.load(Paths.get("f2.less"));
+    assertEquals(loader.weight(), 20);
+    assertEquals(loader.size(), 2);
+
+    loader.invalidate(Paths.get("f0.less"));
+    assertEquals(loader.weight(), 10);
+    loader.clear();
+    assertEquals(loader.size(), 0);
+    assertEquals(loader.weight(), 0);
+  }
+
+  private static void write(Path path, String source) throws Exception {
+    Files.write(path, source.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static class CountingLoader extends FilesystemLessLoader {
+
+    int exists;
+
+    int checks;
+
+    int loads;
+
+    @Override
+    public boolean exists(Path path) {
+      exists++;
+      return super.exists(path);
+    }
+
+    @Override
+    public BasicFileAttributes attributes(Path path) throws IOException {
+      checks++;
+      return super.attributes(path);
+    }
+
+    @Override
+    public String load(Path path) throws LessException {
+      loads++;
+      return super.load(path);
+    }
+
+  }
+
+}
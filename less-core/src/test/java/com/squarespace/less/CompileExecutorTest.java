@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.testng.annotations.Test;
+
+
+public class CompileExecutorTest {
+
+  @Test
+  public void testCompileAsync() throws Exception {
+    CompileExecutor executor = new CompileExecutor(2, 16);
+    LessCompiler compiler = new LessCompiler(LessCompiler.defaultFunctionTable(), null, executor);
+    LessOptions opts = new LessOptions(true);
+
+    List<CompletableFuture<String>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(compiler.compileAsync("@w: " + i + "px; .a { width: @w * 2; }", opts));
+    }
+    for (int i = 0; i < 10; i++) {
+      assertEquals(futures.get(i).get(), ".a{width:" + (i * 2) + "px}");
+    }
+
+    try {
+      compiler.compileAsync(".a { color: @undefined; }", opts).get();
+      fail("Expected a LessException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof LessException);
+    }
+
+    assertEquals(executor.submitted(), 11);
+    assertEquals(executor.completed(), 10);
+    assertEquals(executor.failed(), 1);
+    assertTrue(executor.maxLatencyMs() > 0);
+    executor.shutdown();
+  }
+
+  @Test
+  public void testRejection() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    CompileExecutor executor = new CompileExecutor(1, 1);
+    Callable<String> blocked = new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        latch.await();
+        return "done";
+      }
+    };
+
+    // Occupy the only thread, then fill the queue.
+    CompletableFuture<String> first = executor.submit(blocked);
+    while (executor.active() == 0) {
+      Thread.sleep(1);
+    }
+    CompletableFuture<String> second = executor.submit(blocked);
+    assertEquals(executor.queued(), 1);
+
+    CompletableFuture<String> third = executor.submit(blocked);
+    try {
+      third.get();
+      fail("Expected work to be rejected");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+    assertEquals(executor.rejected(), 1);
+
+    latch.countDown();
+    assertEquals(first.get(), "done");
+    assertEquals(second.get(), "done");
+    executor.shutdown();
+  }
+
+}
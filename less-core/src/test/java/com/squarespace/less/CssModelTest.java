@@ -16,6 +16,8 @@
 
 package com.squarespace.less;
 
+import java.io.StringWriter;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -26,7 +28,7 @@ import com.squarespace.less.model.NodeType;
 public class CssModelTest {
 
   @Test
-  public void testBasic() {
+  public void testBasic() throws LessException {
     LessOptions opts = new LessOptions(true);
     CssModel model = new CssModel(new LessContext(opts));
 
@@ -50,4 +52,53 @@ public class CssModelTest {
     Assert.assertEquals(model.render(), expected);
   }
 
+  @Test
+  public void testStreaming() throws LessException {
+    LessOptions opts = new LessOptions(true);
+    StringWriter out = new StringWriter();
+    CssModel model = new CssModel(new LessContext(opts), out);
+
+    model.push(NodeType.RULESET);
+    model.header(".foo");
+    model.value("color:red");
+
+    // Nested ruleset is emitted at the top level, after its parent.
+    model.push(NodeType.RULESET);
+    model.header(".foo .bar");
+    model.value("color:blue");
+    model.pop();
+    Assert.assertEquals(out.toString(), "");
+
+    // Duplicate rules within a block keep the last occurrence.
+    model.value("margin:0");
+    model.value("color:red");
+    model.pop();
+    String blocks = ".foo{margin:0;color:red}.foo .bar{color:blue}";
+    Assert.assertEquals(out.toString(), blocks);
+
+    // Top-level values may still move, so output after them is held.
+    model.value("@import 'foo.css'");
+    model.value("@import 'bar.css'");
+    model.push(NodeType.RULESET);
+    model.header(".baz");
+    model.value("color:green");
+    model.pop();
+    Assert.assertEquals(out.toString(), blocks);
+
+    // Duplicate top-level values keep the last occurrence.
+    model.value("@import 'foo.css'");
+    model.finish();
+    Assert.assertEquals(out.toString(), blocks + "@import 'bar.css';.baz{color:green}@import 'foo.css'");
+  }
+
+  @Test
+  public void testTopLevelDuplicates() throws LessException {
+    LessOptions opts = new LessOptions(true);
+    CssModel model = new CssModel(new LessContext(opts));
+    model.value("@import \"a.css\"");
+    model.value("@import \"b.css\"");
+    model.value("@import \"a.css\"");
+    Assert.assertEquals(model.render(), "@import \"b.css\";@import \"a.css\"");
+  }
+
 }
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.core.LessUtils;
+
+
+public class FilesystemLessLoaderTest {
+
+  @Test
+  public void testLoad() throws Exception {
+    Path dir = Files.createTempDirectory("less-");
+    try {
+      FilesystemLessLoader loader = new FilesystemLessLoader();
+      Path ascii = write(dir.resolve("ascii.less"), ".a { color: red; }");
+      Path utf8 = write(dir.resolve("utf8.less"), ".a:before { content: \"é☃😀\"; }");
+      Path empty = write(dir.resolve("empty.less"), "");
+      assertEquals(loader.load(ascii), ".a { color: red; }");
+      assertEquals(loader.load(utf8), ".a:before { content: \"é☃😀\"; }");
+      assertEquals(loader.load(empty), "");
+      assertEquals(LessUtils.readFile(utf8), loader.load(utf8));
+
+      // Time spent loading imports is recorded.
+      LessCompiler compiler = new LessCompiler();
+      LessOptions opts = new LessOptions(true);
+      opts.addImportPath(dir.toString());
+      LessContext ctx = new LessContext(opts);
+      ctx.setFunctionTable(compiler.functionTable());
+      assertEquals(compiler.compile("@import 'ascii.less';", ctx), ".a{color:red}");
+      assertTrue(ctx.stats().diskWaitTimeMs() > 0);
+
+    } finally {
+      for (String name : new String[] { "ascii.less", "utf8.less", "empty.less" }) {
+        Files.deleteIfExists(dir.resolve(name));
+      }
+      Files.delete(dir);
+    }
+  }
+
+  private static Path write(Path path, String source) throws Exception {
+    return Files.write(path, source.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
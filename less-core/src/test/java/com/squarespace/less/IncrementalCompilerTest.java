@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.model.Stylesheet;
+import com.squarespace.less.parse.ImportGraph;
+import com.squarespace.less.parse.LruImportCache;
+
+
+public class IncrementalCompilerTest {
+
+  @Test
+  public void testImportGraph() throws LessException {
+    Map<Path, String> map = buildMap();
+    LessCompiler compiler = new LessCompiler();
+    LessContext ctx = newContext(compiler, map);
+    compiler.parse(map.get(path("a.less")), ctx, path("a.less"));
+
+    ImportGraph graph = ctx.importer().graph();
+    assertEquals(graph.imports(path("a.less")), set("base.less"));
+    assertEquals(graph.imports(path("base.less")), set("child.less"));
+    assertEquals(graph.importers(path("child.less")), set("base.less"));
+    assertEquals(graph.reachable(path("a.less")), set("a.less", "base.less", "child.less"));
+    assertEquals(graph.dependents(Arrays.asList(path("child.less"))), set("child.less", "base.less", "a.less"));
+  }
+
+  @Test
+  public void testUpdate() throws LessException {
+    Map<Path, String> map = buildMap();
+    LessCompiler compiler = new LessCompiler(LessCompiler.defaultFunctionTable(), new LruImportCache());
+    IncrementalCompiler incremental = new IncrementalCompiler(compiler);
+    for (String name : Arrays.asList("a.less", "b.less")) {
+      incremental.parse(map.get(path(name)), newContext(compiler, map), path(name));
+    }
+    assertEquals(incremental.dependencies(path("b.less")), set("b.less", "base.less", "child.less", "other.less"));
+
+    // Only roots importing the changed file are affected.
+    assertEquals(incremental.changed(Arrays.asList(path("other.less"))), set("b.less"));
+    assertEquals(incremental.changed(Arrays.asList(path("a.less"))), set("a.less"));
+    assertTrue(incremental.changed(Arrays.asList(path("missing.less"))).isEmpty());
+
+    map.put(path("child.less"), "@size: 14px;");
+    Map<Path, Stylesheet> updated = incremental.update(Arrays.asList(path("child.less")), options(), loader(map));
+    assertEquals(updated.keySet(), set("a.less", "b.less"));
+
+    LessContext ctx = newContext(compiler, map);
+    assertEquals(compiler.render(updated.get(path("a.less")), ctx), ".a{font-size:14px}");
+    ctx = newContext(compiler, map);
+    assertEquals(compiler.render(updated.get(path("b.less")), ctx), ".b{font-size:14px;color:red}");
+  }
+
+  private static Map<Path, String> buildMap() {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("a.less"), "@import 'base.less'; .a { font-size: @size; }");
+    map.put(path("b.less"), "@import 'base.less'; @import 'other.less'; .b { font-size: @size; color: @color; }");
+    map.put(path("base.less"), "@import 'child.less';");
+    map.put(path("child.less"), "@size: 12px;");
+    map.put(path("other.less"), "@color: red;");
+    return map;
+  }
+
+  private static LessContext newContext(LessCompiler compiler, Map<Path, String> map) {
+    LessContext ctx = new LessContext(options(), loader(map));
+    ctx.setFunctionTable(compiler.functionTable());
+    return ctx;
+  }
+
+  private static LessOptions options() {
+    LessOptions opts = new LessOptions();
+    opts.compress(true);
+    return opts;
+  }
+
+  private static LessLoader loader(Map<Path, String> map) {
+    return new HashMapLessLoader(map);
+  }
+
+  private static HashSet<Path> set(String ... names) {
+    HashSet<Path> result = new HashSet<>();
+    for (String name : names) {
+      result.add(path(name));
+    }
+    return result;
+  }
+
+  private static Path path(String path) {
+    return Paths.get(path).toAbsolutePath().normalize();
+  }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+
+public class LessContextPoolTest {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  private static final String SOURCE = "@import 'base.less'; .a { color: @color; }";
+
+  @Test
+  public void testReset() throws LessException {
+    LessContext ctx = new LessContext(options(), loader());
+    ctx.setFunctionTable(COMPILER.functionTable());
+    assertEquals(COMPILER.compile(SOURCE, ctx, path("root.less")), ".base{color:red}.a{color:red}");
+    assertEquals(ctx.stats().importCount(), 1);
+
+    // Reset clears the cancel flag and the import-once records, which would
+    // otherwise suppress the import.
+    ctx.governor().cancel();
+    ctx.reset();
+    assertEquals(ctx.stats().importCount(), 0);
+    assertEquals(COMPILER.compile(SOURCE, ctx, path("root.less")), ".base{color:red}.a{color:red}");
+    assertEquals(ctx.stats().importCount(), 1);
+  }
+
+  @Test
+  public void testPool() throws LessException {
+    LessContextPool pool = new LessContextPool(options(), loader(), COMPILER.functionTable(), 1);
+    LessContext first = pool.acquire();
+    LessContext second = pool.acquire();
+    assertNotSame(first, second);
+    assertEquals(COMPILER.compile(SOURCE, first, path("root.less")), ".base{color:red}.a{color:red}");
+
+    pool.release(first);
+    pool.release(second);
+    assertEquals(pool.idle(), 1);
+
+    LessContext ctx = pool.acquire();
+    assertSame(ctx, first);
+    assertEquals(COMPILER.compile(SOURCE, ctx, path("root.less")), ".base{color:red}.a{color:red}");
+    assertEquals(pool.idle(), 0);
+  }
+
+  private static LessOptions options() {
+    LessOptions opts = new LessOptions(true);
+    opts.importOnce(true);
+    return opts;
+  }
+
+  private static LessLoader loader() {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("base.less"), "@color: red; .base { color: @color; }");
+    return new HashMapLessLoader(map);
+  }
+
+  private static Path path(String path) {
+    return Paths.get(path).toAbsolutePath().normalize();
+  }
+
+}
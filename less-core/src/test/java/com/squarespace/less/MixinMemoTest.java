@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.exec.MixinMemo;
+import com.squarespace.less.model.Block;
+import com.squarespace.less.model.Keyword;
+import com.squarespace.less.model.Mixin;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.Property;
+import com.squarespace.less.model.Rule;
+import com.squarespace.less.model.Ruleset;
+import com.squarespace.less.model.Stylesheet;
+
+
+public class MixinMemoTest {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  @Test
+  public void testEligible() throws LessException {
+    String source = "@g: 1px;\n"
+        + ".radius(@r) { border-radius: @r; -webkit-border-radius: @r; }\n"
+        + ".clearfix() { &:after { content: ''; clear: both; } }\n"
+        + ".local(@a) { @b: @a * 2; width: @b; .x { height: @b; } }\n"
+        + ".guarded(@a) when (@a > 1) { width: @a; }\n"
+        + ".global(@a) { width: @a + @g; }\n"
+        + ".nested(@a) { .x { @b: 1; } width: @b; }\n"
+        + ".calls(@a) { .radius(@a); }\n"
+        + ".defaults(@a: @g) { width: @a; }\n";
+
+    LessContext ctx = context(true);
+    Stylesheet sheet = COMPILER.parse(source, ctx);
+    MixinMemo memo = new MixinMemo();
+    assertNotNull(key(memo, ctx, sheet, ".radius"));
+    assertNotNull(key(memo, ctx, sheet, ".clearfix"));
+    assertNotNull(key(memo, ctx, sheet, ".local"));
+    assertNotNull(key(memo, ctx, sheet, ".guarded"));
+    assertNull(key(memo, ctx, sheet, ".global"));
+    assertNull(key(memo, ctx, sheet, ".nested"));
+    assertNull(key(memo, ctx, sheet, ".calls"));
+    assertNull(key(memo, ctx, sheet, ".defaults"));
+  }
+
+  @Test
+  public void testOutput() throws LessException {
+    String source = ".radius(@r) { border-radius: @r; }\n"
+        + ".pad(@a) when (@a > 1) { padding: @a; }\n"
+        + ".pad(@a) when (@a <= 1) { margin: @a; }\n"
+        + ".scale(@a) { width: @a * 2; .x { height: @a; } }\n"
+        + ".a { .radius(4px); .pad(2); .scale(3px); }\n"
+        + ".b { .radius(4px); .pad(1); .scale(3px) !important; }\n"
+        + ".c { .radius(5px); .pad(2); .scale(3px); }\n";
+
+    String expected = COMPILER.compile(source, context(false));
+    assertEquals(COMPILER.compile(source, context(true)), expected);
+    assertTrue(expected.startsWith(".a{border-radius:4px;padding:2;width:6px}.a .x{height:3px}"));
+    assertTrue(expected.contains("margin:1"));
+    assertTrue(expected.contains("border-radius:5px"));
+  }
+
+  @Test
+  public void testCopies() throws LessException {
+    String source = ".scale(@a) { width: @a; .x { height: @a; } }\n"
+        + ".a { .scale(3px); }\n";
+
+    LessContext ctx = context(true);
+    Stylesheet sheet = COMPILER.parse(source, ctx);
+    MixinMemo memo = new MixinMemo();
+    MixinMemo.Key key = key(memo, ctx, sheet, ".scale");
+
+    Block block = COMPILER.parse("width: auto; .x { height: auto; }", ctx).block();
+    Ruleset ruleset = (Ruleset)block.rules().get(1);
+    memo.put(key, block);
+
+    // Each call site receives its own copy of the block nodes, while the
+    // leaf nodes are shared.
+    Block first = memo.get(key);
+    Block second = memo.get(key);
+    assertNotSame(first, block);
+    assertNotSame(first, second);
+    assertSame(first.rules().get(0), block.rules().get(0));
+    assertNotSame(first.rules().get(1), ruleset);
+    assertNotSame(first.rules().get(1), second.rules().get(1));
+    assertNotSame(((Ruleset)first.rules().get(1)).block(), ruleset.block());
+    assertEquals(first.repr(), block.repr());
+
+    // Changing one copy leaves the memo and the other copies intact.
+    ((Ruleset)first.rules().get(1)).add(new Rule(new Property("color"), new Keyword("red")));
+    assertEquals(second.repr(), block.repr());
+    assertEquals(memo.get(key).repr(), block.repr());
+  }
+
+  @Test
+  public void testEvaluationLimit() throws LessException {
+    String source = ".m(@a) { a: @a; b: @a; c: @a; d: @a; }\n"
+        + ".x { .m(1); .m(1); .m(1); .m(1); }\n";
+
+    // Memoized calls count toward the evaluation limit.
+    LessContext ctx = context(false);
+    COMPILER.compile(source, ctx);
+    long evaluated = ctx.governor().evaluated();
+
+    ctx = context(true);
+    COMPILER.compile(source, ctx);
+    assertTrue(ctx.governor().evaluated() >= evaluated);
+  }
+
+  private static MixinMemo.Key key(MixinMemo memo, LessContext ctx, Stylesheet sheet, String name) {
+    FlexList<Node> rules = sheet.block().rules();
+    for (int i = 0; i < rules.size(); i++) {
+      Node node = rules.get(i);
+      if (node instanceof Mixin && ((Mixin)node).name().equals(name)) {
+        return memo.key(ctx, (Mixin)node, null, false, false);
+      }
+    }
+    throw new AssertionError("mixin " + name + " not found");
+  }
+
+  private static LessContext context(boolean memoize) {
+    LessOptions opts = new LessOptions(true);
+    opts.memoizeMixins(memoize);
+    LessContext ctx = new LessContext(opts);
+    ctx.setFunctionTable(COMPILER.functionTable());
+    return ctx;
+  }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.core.OffHeapCache;
+
+
+public class OffHeapLessLoaderTest {
+
+  @Test
+  public void testLoad() throws LessException {
+    Path path = Paths.get("base.less");
+    Map<Path, String> files = new HashMap<>();
+    files.put(path, "@c: été; .a { color: red; }");
+    OffHeapLessLoader loader = new OffHeapLessLoader(new HashMapLessLoader(files));
+
+    assertTrue(loader.exists(path));
+    assertFalse(loader.exists(Paths.get("missing.less")));
+    assertEquals(loader.load(path), files.get(path));
+    assertEquals(loader.cache().size(), 1);
+
+    // Later loads are served from the cache.
+    String original = files.remove(path);
+    assertTrue(loader.exists(path));
+    assertEquals(loader.load(path), original);
+
+    loader.invalidate(path);
+    assertFalse(loader.exists(path));
+  }
+
+  @Test
+  public void testEviction() {
+    OffHeapCache<String> cache = new OffHeapCache<>(10);
+    cache.put("a", new byte[4]);
+    cache.put("b", new byte[4]);
+    assertEquals(cache.bytes(), 8);
+
+    // Touch "a" so "b" is evicted first.
+    cache.get("a");
+    cache.put("c", new byte[4]);
+    assertNull(cache.get("b"));
+    assertEquals(cache.get("a").remaining(), 4);
+    assertEquals(cache.bytes(), 8);
+
+    // Entries over the limit are not cached.
+    cache.put("d", new byte[11]);
+    assertNull(cache.get("d"));
+
+    cache.clear();
+    assertEquals(cache.size(), 0);
+    assertEquals(cache.bytes(), 0);
+  }
+
+}
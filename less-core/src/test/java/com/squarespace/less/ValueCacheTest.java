@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.core.LessHarness;
+import com.squarespace.less.model.Dimension;
+import com.squarespace.less.model.KeywordColor;
+import com.squarespace.less.model.RGBColor;
+import com.squarespace.less.model.Unit;
+import com.squarespace.less.model.Units;
+import com.squarespace.less.model.ValueCache;
+
+
+public class ValueCacheTest {
+
+  @Test
+  public void testDimension() {
+    Dimension dim = ValueCache.dimension(12.5, Units.PX);
+    assertSame(ValueCache.dimension(12.5, Units.PX), dim);
+    assertEquals(dim, new Dimension(12.5, Units.PX));
+    assertNotSame(ValueCache.dimension(12.5, Units.EM), dim);
+    assertNotSame(ValueCache.dimension(12.5), dim);
+
+    // Negative zero renders differently so must not be shared with zero.
+    assertNotSame(ValueCache.dimension(-0.0), ValueCache.dimension(0.0));
+
+    // Custom units are only shared with the same instance.
+    Unit custom = new Unit("px");
+    assertSame(ValueCache.dimension(1, custom).unit(), custom);
+    assertSame(ValueCache.dimension(1, Units.PX).unit(), Units.PX);
+  }
+
+  @Test
+  public void testStrings() {
+    assertSame(ValueCache.keyword("and"), ValueCache.keyword(new String("and")));
+    assertSame(ValueCache.anonymous("foo"), ValueCache.anonymous(new String("foo")));
+    assertEquals(ValueCache.keyword("and").value(), "and");
+  }
+
+  @Test
+  public void testColor() {
+    RGBColor red = ValueCache.color("red");
+    assertSame(ValueCache.color("red"), red);
+    assertEquals(red, RGBColor.fromName("red"));
+    assertTrue(ValueCache.color("transparent") instanceof KeywordColor);
+    assertNull(ValueCache.color("notacolor"));
+  }
+
+  @Test
+  public void testEvaluation() throws LessException {
+    LessHarness h = new LessHarness();
+    String source = ".a { width: 10px + 5px; height: 10px + 5px; color: red + #111; c: percentage(0.5); }";
+    assertEquals(h.execute(source), ".a {\n  width: 15px;\n  height: 15px;\n  color: #f11;\n  c: 50%;\n}\n");
+  }
+
+}
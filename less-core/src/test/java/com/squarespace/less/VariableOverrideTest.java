@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.Stylesheet;
+
+
+public class VariableOverrideTest {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  private static final String SOURCE = "@color: red; @size: 10px; @border: @size / 5;\n"
+      + ".a { color: @color; width: @size * 2; border-width: @border; .b { @color: blue; color: @color; } }";
+
+  @Test
+  public void testOverrides() throws LessException {
+    Stylesheet sheet = COMPILER.parse(SOURCE, context());
+    assertEquals(COMPILER.render(sheet, context()),
+        ".a{color:red;width:20px;border-width:2px}.a .b{color:blue}");
+
+    Map<String, String> sources = new LinkedHashMap<>();
+    sources.put("color", "green");
+    sources.put("@size", "5px");
+    Map<String, Node> overrides = COMPILER.parseVariables(sources, context());
+    assertEquals(COMPILER.render(sheet, context(), overrides),
+        ".a{color:green;width:10px;border-width:1px}.a .b{color:blue}");
+
+    // Overrides may refer to other variables.
+    sources.clear();
+    sources.put("color", "darken(@c, 10%)");
+    sources.put("c", "#ff0000");
+    assertEquals(COMPILER.render(sheet, context(), COMPILER.parseVariables(sources, context())),
+        ".a{color:#c00;width:20px;border-width:2px}.a .b{color:blue}");
+
+    // The parsed tree is unchanged.
+    assertEquals(COMPILER.render(sheet, context()),
+        ".a{color:red;width:20px;border-width:2px}.a .b{color:blue}");
+  }
+
+  private static LessContext context() {
+    LessContext ctx = new LessContext(new LessOptions(true));
+    ctx.setFunctionTable(COMPILER.functionTable());
+    return ctx;
+  }
+
+}
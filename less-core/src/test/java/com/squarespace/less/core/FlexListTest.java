@@ -121,6 +121,18 @@ public class FlexListTest {
     assertEquals(list1, expected);
   }
 
+  @Test
+  public void testCompact() {
+    FlexList<Object> list1 = new FlexList<>(16);
+    list1.compact();
+    assertEquals(list1, FlexList.<Object>create(new Object[] { }));
+    list1.append('a');
+    list1.append('b');
+    list1.compact();
+    list1.append('c');
+    assertEquals(list1, ALPHA3);
+  }
+
   @Test
   public void testBounds() {
     FlexList<Object> expected;
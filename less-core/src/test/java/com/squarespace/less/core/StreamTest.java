@@ -22,6 +22,12 @@ import static org.testng.Assert.assertTrue;
 
 import org.testng.annotations.Test;
 
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.Ruleset;
+import com.squarespace.less.model.Stylesheet;
 import com.squarespace.less.parse.Mark;
 import com.squarespace.less.parse.Patterns;
 import com.squarespace.less.parse.Stream;
@@ -121,6 +127,44 @@ public class StreamTest {
     assertEquals(stm.getCharOffset(), 3);
   }
 
+  @Test
+  public void testPositions() {
+    Stream stm = new Stream("ab\n\ncd\ne");
+    assertEquals(stm.lineOffset(7), 3);
+    assertEquals(stm.charOffset(7), 0);
+
+    // Lookups behind the previous one.
+    assertEquals(stm.lineOffset(1), 0);
+    assertEquals(stm.charOffset(1), 1);
+    assertEquals(stm.lineOffset(3), 1);
+    assertEquals(stm.lineOffset(5), 2);
+    assertEquals(stm.charOffset(5), 1);
+
+    // Restoring a mark restores the position.
+    Mark pos = stm.mark();
+    stm.seekTo('e');
+    assertEquals(stm.getLineOffset(), 3);
+    stm.restore(pos);
+    assertEquals(stm.getLineOffset(), 0);
+    assertEquals(stm.getCharOffset(), 0);
+  }
+
+  @Test
+  public void testNodePositions() throws LessException {
+    String source = ".a {\n  color: red;\n}\n.b {\n  width: 1px;\n}\n";
+    assertEquals(position(source), "3,2");
+  }
+
+  private static String position(String source) throws LessException {
+    LessCompiler compiler = new LessCompiler();
+    LessContext ctx = new LessContext();
+    ctx.setFunctionTable(compiler.functionTable());
+    Stylesheet sheet = compiler.parse(source, ctx);
+    Ruleset ruleset = (Ruleset)sheet.block().rules().get(1);
+    Node rule = ruleset.block().rules().get(0);
+    return ruleset.lineOffset() + "," + rule.charOffset();
+  }
+
   @Test
   public void testSeek1() {
     Stream stm = new Stream("abc");
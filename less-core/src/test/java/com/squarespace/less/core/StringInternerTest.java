@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.core;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.model.Property;
+import com.squarespace.less.model.Rule;
+import com.squarespace.less.model.Ruleset;
+import com.squarespace.less.model.Stylesheet;
+
+
+public class StringInternerTest {
+
+  @Test
+  public void testIntern() {
+    StringInterner interner = new StringInterner(4);
+    String first = new String("color");
+    String second = new String("color");
+    assertSame(interner.get(first), first);
+    assertSame(interner.get(second), first);
+    assertNull(interner.get(null));
+
+    // Long strings are returned as-is.
+    String longValue = new String(new char[StringInterner.MAX_LENGTH + 1]);
+    assertSame(interner.get(longValue), longValue);
+    assertNotSame(interner.get(new String(longValue)), longValue);
+  }
+
+  @Test
+  public void testParse() throws LessException {
+    LessCompiler compiler = new LessCompiler();
+    LessContext ctx = new LessContext(new LessOptions());
+    ctx.setFunctionTable(compiler.functionTable());
+    Stylesheet sheet = compiler.parse(".a { color: red; } .b { color: blue; }", ctx);
+    String first = name(sheet, 0);
+    String second = name(sheet, 1);
+    assertEquals(first, "color");
+    assertSame(first, second);
+  }
+
+  private static String name(Stylesheet sheet, int index) {
+    Ruleset ruleset = (Ruleset)sheet.block().rules().get(index);
+    return ((Property)((Rule)ruleset.block().rules().get(0)).property()).name();
+  }
+
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.exec;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.model.Comment;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.Stylesheet;
+
+
+/**
+ * Renders the parse trees of the on-disk test suite from many threads at once,
+ * ensuring evaluation does not modify the shared trees. Also checks that
+ * streamed output matches the buffered output.
+ */
+public class ConcurrentRenderTest extends LessSuiteBase {
+
+  private static final int THREADS = 8;
+
+  private static final int ITERATIONS = 10;
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  @Test
+  public void testSequentialRender() throws Exception {
+    for (Case testCase : parseSuite()) {
+      for (int i = 0; i < 3; i++) {
+        assertEquals(render(testCase), testCase.expected, testCase.fileName);
+      }
+    }
+  }
+
+  @Test
+  public void testStreamingRender() throws Exception {
+    for (Case testCase : parseSuite()) {
+      StringWriter out = new StringWriter();
+      COMPILER.render(testCase.sheet, newContext(testCase.opts), out);
+      assertEquals(out.toString(), testCase.expected, testCase.fileName);
+    }
+  }
+
+  @Test
+  public void testConcurrentRender() throws Exception {
+    final List<Case> cases = parseSuite();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int j = 0; j < ITERATIONS; j++) {
+              for (Case testCase : cases) {
+                assertEquals(render(testCase), testCase.expected, testCase.fileName);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Parse each stylesheet in the test suite once, along with the output of
+   * its first render.
+   */
+  private List<Case> parseSuite() throws IOException, LessException {
+    Path lessRoot = testSuiteRoot().resolve("less");
+    List<Case> cases = new ArrayList<>();
+    for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+      String source = LessUtils.readFile(lessPath);
+      LessOptions opts = new LessOptions();
+      opts.addImportPath(lessRoot.toString());
+      Stylesheet sheet = COMPILER.parse(source, newContext(opts));
+
+      // Detect case-specific options enabled via comments.
+      FlexList<Node> rules = sheet.block().rules();
+      for (int i = 0; i < rules.size(); i++) {
+        Node rule = rules.get(i);
+        if (rule instanceof Comment && ((Comment)rule).body().trim().equals("strict=false")) {
+          opts.strict(false);
+        }
+      }
+
+      Case testCase = new Case(lessPath.getFileName().toString(), opts, sheet);
+      testCase.expected = render(testCase);
+      cases.add(testCase);
+    }
+    return cases;
+  }
+
+  private static String render(Case testCase) throws LessException {
+    return COMPILER.render(testCase.sheet, newContext(testCase.opts));
+  }
+
+  private static LessContext newContext(LessOptions opts) {
+    LessContext ctx = new LessContext(opts);
+    ctx.setFunctionTable(COMPILER.functionTable());
+    return ctx;
+  }
+
+  private static class Case {
+
+    private final String fileName;
+
+    private final LessOptions opts;
+
+    private final Stylesheet sheet;
+
+    private String expected;
+
+    Case(String fileName, LessOptions opts, Stylesheet sheet) {
+      this.fileName = fileName;
+      this.opts = opts;
+      this.sheet = sheet;
+    }
+
+  }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.exec;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.core.LessTestBase;
+import com.squarespace.less.model.Block;
+import com.squarespace.less.model.Definition;
+
+
+public class FrameStackTest extends LessTestBase {
+
+  @Test
+  public void testStack() throws LessException {
+    Definition a1 = def("@a", anon("1"));
+    Definition a2 = def("@a", anon("2"));
+    Definition b1 = def("@b", anon("3"));
+    Block root = block(a1, b1);
+    Block inner = block(a2);
+
+    FrameStack empty = FrameStack.EMPTY;
+    assertTrue(empty.isEmpty());
+    assertNull(empty.last());
+    assertSame(empty.pop(), empty);
+
+    FrameStack base = empty.push(root);
+    FrameStack stack = base.push(inner);
+    assertEquals(stack.size(), 2);
+    assertSame(stack.last(), inner);
+    assertSame(stack.resolveDefinition("@a"), a2);
+    assertSame(stack.resolveDefinition("@b"), b1);
+    assertNull(stack.resolveDefinition("@c"));
+
+    // Pushing onto a stack leaves it unchanged.
+    assertSame(stack.pop(), base);
+    assertSame(base.resolveDefinition("@a"), a1);
+
+    // Appended frames are searched first, and popped first.
+    FrameStack closure = empty.push(inner);
+    FrameStack appended = base.append(closure);
+    assertEquals(appended.size(), 2);
+    assertSame(appended.last(), inner);
+    assertSame(appended.resolveDefinition("@a"), a2);
+    assertSame(appended.pop(), base);
+    assertSame(base.append(empty), base);
+    assertSame(empty.append(closure), closure);
+
+    Block top = block(def("@c", anon("4")));
+    FrameStack pushed = appended.push(top);
+    assertEquals(pushed.size(), 3);
+    assertSame(pushed.last(), top);
+    assertSame(pushed.pop(), appended);
+    assertSame(base.append(closure.push(top)).pop().last(), inner);
+  }
+
+  @Test
+  public void testDefinitionCache() throws LessException {
+    Definition a1 = def("@a", anon("1"));
+    Definition a2 = def("@a", anon("2"));
+    Block root = block(a1);
+    Block inner = block();
+
+    ExecEnv env = new LessContext().newEnv();
+    env.push(root);
+    assertSame(env.resolveDefinition("@a"), a1);
+
+    // Pushing a frame drops cached lookups.
+    env.push(inner);
+    assertSame(env.resolveDefinition("@a"), a1);
+    inner.appendNode(a2);
+    env.variablesChanged();
+    assertSame(env.resolveDefinition("@a"), a2);
+
+    env.pop();
+    assertSame(env.resolveDefinition("@a"), a1);
+    assertNull(env.resolveDefinition("@b"));
+  }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.exec;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.ExecuteErrorType;
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessErrorType;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+
+
+public class ResourceGovernorTest {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  /**
+   * Mixin which recurses until the recursion limit is reached, producing
+   * a rule at each level.
+   */
+  private static final String RECURSIVE = ".m(@i) when (@i > 0) { a: @i; .m(@i - 1); } .x { .m(60); }";
+
+  @Test
+  public void testEvaluationLimit() throws LessException {
+    LessOptions opts = new LessOptions(true);
+    assertTrue(compile(RECURSIVE, opts).startsWith(".x{a:60;a:59;"));
+
+    opts.evaluationLimit(100);
+    assertError(RECURSIVE, opts, ExecuteErrorType.EVALUATION_LIMIT);
+  }
+
+  @Test
+  public void testOutputSizeLimit() throws LessException {
+    LessOptions opts = new LessOptions(true);
+    opts.outputSizeLimit(1000);
+    compile(RECURSIVE, opts);
+
+    opts.outputSizeLimit(100);
+    assertError(RECURSIVE, opts, ExecuteErrorType.OUTPUT_SIZE_LIMIT);
+  }
+
+  @Test
+  public void testCompileTimeLimit() {
+    // Nested selector groups generate 12^5 combined selectors.
+    StringBuilder buf = new StringBuilder();
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 12; j++) {
+        buf.append(j == 0 ? "" : ",").append(".s").append(i).append('-').append(j);
+      }
+      buf.append(" {\n");
+    }
+    buf.append("color: red;\n");
+    for (int i = 0; i < 5; i++) {
+      buf.append("}\n");
+    }
+
+    LessOptions opts = new LessOptions(true);
+    opts.compileTimeLimit(1);
+    assertError(buf.toString(), opts, ExecuteErrorType.COMPILE_TIME_LIMIT);
+  }
+
+  @Test
+  public void testCancel() {
+    LessOptions opts = new LessOptions(true);
+    LessContext ctx = newContext(opts);
+    ctx.governor().cancel();
+    try {
+      COMPILER.compile(RECURSIVE, ctx);
+      fail("Expected a LessException");
+    } catch (LessException e) {
+      assertEquals(e.primaryError().type(), ExecuteErrorType.COMPILE_CANCELLED);
+    }
+  }
+
+  private static void assertError(String source, LessOptions opts, LessErrorType type) {
+    try {
+      compile(source, opts);
+      fail("Expected a LessException");
+    } catch (LessException e) {
+      assertEquals(e.primaryError().type(), type);
+    }
+  }
+
+  private static String compile(String source, LessOptions opts) throws LessException {
+    return COMPILER.compile(source, newContext(opts));
+  }
+
+  private static LessContext newContext(LessOptions opts) {
+    LessContext ctx = new LessContext(opts);
+    ctx.setFunctionTable(COMPILER.functionTable());
+    return ctx;
+  }
+
+}
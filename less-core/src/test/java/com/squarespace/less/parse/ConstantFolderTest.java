@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.nio.file.Path;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.exec.LessSuiteBase;
+import com.squarespace.less.model.Comment;
+import com.squarespace.less.model.Definition;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.Rule;
+import com.squarespace.less.model.Ruleset;
+import com.squarespace.less.model.Stylesheet;
+
+
+public class ConstantFolderTest extends LessSuiteBase {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  @Test
+  public void testFolding() throws LessException {
+    String source = "@w: (960px / 12) * 3; .a { width: @w; color: darken(#336699, 10%); "
+        + "margin: 1px + 2px @w; height: @w * 2; }";
+    Stylesheet sheet = parse(source, true);
+    FlexList<Node> rules = sheet.block().rules();
+    assertFalse(((Definition)rules.get(0)).value().needsEval());
+
+    FlexList<Node> inner = ((Ruleset)rules.get(1)).block().rules();
+    assertFalse(inner.get(1).needsEval());
+    assertTrue(inner.get(2).needsEval());
+    assertTrue(inner.get(3).needsEval());
+
+    String expected = ".a{width:240px;color:#264c73;margin:3px 240px;height:480px}";
+    assertEquals(COMPILER.render(sheet, context(true)), expected);
+    assertEquals(COMPILER.render(parse(source, false), context(false)), expected);
+  }
+
+  @Test
+  public void testStrictMath() throws LessException {
+    Stylesheet sheet = parse(".a { font: 12px/1.5 (2px * 3); }", true);
+    Rule rule = (Rule)((Ruleset)sheet.block().rules().get(0)).block().rules().get(0);
+    assertTrue(rule.needsEval());
+    assertEquals(COMPILER.render(sheet, context(true)), ".a{font:12px/1.5 6px}");
+  }
+
+  @Test
+  public void testErrorsDeferred() throws LessException {
+    // Invalid operations are left in place to be reported during evaluation.
+    Stylesheet sheet = parse(".a { width: 1px + #fff; }", true);
+    try {
+      COMPILER.render(sheet, context(true));
+      fail("expected LessException");
+    } catch (LessException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testSuite() throws Exception {
+    Path lessRoot = testSuiteRoot().resolve("less");
+    for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+      String source = LessUtils.readFile(lessPath);
+      String expected = compile(source, lessRoot, false);
+      assertEquals(compile(source, lessRoot, true), expected, lessPath.getFileName().toString());
+    }
+  }
+
+  private static String compile(String source, Path lessRoot, boolean fold) throws LessException {
+    LessOptions opts = options(fold);
+    opts.addImportPath(lessRoot.toString());
+    Stylesheet sheet = COMPILER.parse(source, context(opts));
+
+    // Detect case-specific options enabled via comments.
+    FlexList<Node> rules = sheet.block().rules();
+    for (int i = 0; i < rules.size(); i++) {
+      Node rule = rules.get(i);
+      if (rule instanceof Comment && ((Comment)rule).body().trim().equals("strict=false")) {
+        opts.strict(false);
+      }
+    }
+    return COMPILER.render(sheet, context(opts));
+  }
+
+  private static Stylesheet parse(String source, boolean fold) throws LessException {
+    return COMPILER.parse(source, context(fold));
+  }
+
+  private static LessContext context(boolean fold) {
+    return context(options(fold));
+  }
+
+  private static LessContext context(LessOptions opts) {
+    LessContext ctx = new LessContext(opts);
+    ctx.setFunctionTable(COMPILER.functionTable());
+    return ctx;
+  }
+
+  private static LessOptions options(boolean fold) {
+    LessOptions opts = new LessOptions(true);
+    opts.foldConstants(fold);
+    return opts;
+  }
+
+}
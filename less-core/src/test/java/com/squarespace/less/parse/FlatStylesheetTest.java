@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Path;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.exec.LessSuiteBase;
+import com.squarespace.less.model.Stylesheet;
+
+
+public class FlatStylesheetTest extends LessSuiteBase {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  @Test
+  public void testSuite() throws Exception {
+    Path lessRoot = testSuiteRoot().resolve("less");
+    for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+      String source = LessUtils.readFile(lessPath);
+      if (source.contains("strict=false")) {
+        continue;
+      }
+      String fileName = lessPath.getFileName().toString();
+      LessOptions opts = new LessOptions();
+      opts.addImportPath(lessRoot.toString());
+      Stylesheet sheet = COMPILER.parse(source, context(opts));
+      FlatStylesheet flat = FlatStylesheet.flatten(sheet);
+      assertFalse(flat.materialized(), fileName);
+      assertEquals(COMPILER.render(flat.stylesheet(), context(opts)), COMPILER.render(sheet, context(opts)), fileName);
+    }
+  }
+
+  @Test
+  public void testMaterialize() throws Exception {
+    LessOptions opts = new LessOptions(true);
+    FlatStylesheet flat = FlatStylesheet.flatten(COMPILER.parse("@a: 2px; .x { width: @a * 2; }", context(opts)));
+    assertTrue(flat.size() > 0);
+
+    // Unless materialized, the tree is built for each use and not kept.
+    Stylesheet first = flat.stylesheet();
+    assertFalse(flat.materialized());
+    assertNotSame(flat.stylesheet(), first);
+    assertEquals(COMPILER.render(first, context(opts)), ".x{width:4px}");
+
+    // Serialized trees can be held off-heap.
+    FlatStylesheet direct = FlatStylesheet.flatten(first, true);
+    assertTrue(direct.data().isDirect());
+    assertEquals(direct.size(), flat.size());
+    assertEquals(COMPILER.render(direct.stylesheet(), context(opts)), ".x{width:4px}");
+
+    // A materialized tree is kept until released.
+    Stylesheet kept = flat.materialize();
+    assertTrue(flat.materialized());
+    assertSame(flat.materialize(), kept);
+    assertSame(flat.stylesheet(), kept);
+    assertEquals(COMPILER.render(kept, context(opts)), ".x{width:4px}");
+
+    flat.release();
+    assertFalse(flat.materialized());
+    assertNotSame(flat.stylesheet(), kept);
+  }
+
+  private static LessContext context(LessOptions opts) {
+    LessContext ctx = new LessContext(opts);
+    ctx.setFunctionTable(COMPILER.functionTable());
+    return ctx;
+  }
+
+}
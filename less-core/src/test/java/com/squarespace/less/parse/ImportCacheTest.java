@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.HashMapLessLoader;
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.model.Block;
+
+
+public class ImportCacheTest {
+
+  @Test
+  public void testReuse() throws LessException {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("base.less"), "@color: #abc; @import 'child.less';");
+    map.put(path("child.less"), ".child { font-size: 12px; }\n@size: 12px;");
+
+    LruImportCache cache = new LruImportCache();
+    LessCompiler compiler = new LessCompiler(LessCompiler.defaultFunctionTable(), cache);
+    String source = "@import 'base.less'; .ruleset { color: @color; font-size: @size; }";
+    String expected = ".child{font-size:12px}.ruleset{color:#abc;font-size:12px}";
+
+    LessContext ctx = newContext(compiler, map);
+    assertEquals(compiler.compile(source, ctx, path("foo.less")), expected);
+    assertEquals(ctx.stats().importCount(), 2);
+    assertEquals(ctx.stats().cachedImports(), 0);
+    assertEquals(ctx.stats().fileReads(), 2);
+    assertEquals(cache.size(), 2);
+
+    // Both imports are satisfied from the cache. Both files are still read,
+    // the nested one to check it is unchanged.
+    ctx = newContext(compiler, map);
+    assertEquals(compiler.compile(source, ctx, path("foo.less")), expected);
+    assertEquals(ctx.stats().importCount(), 2);
+    assertEquals(ctx.stats().cachedImports(), 2);
+    assertEquals(ctx.stats().fileReads(), 2);
+    assertEquals(ctx.stats().maxImportDepth(), 3);
+
+    // Changing a nested import forces both files to be parsed again. The
+    // nested file is read once to check it and once more to parse it.
+    map.put(path("child.less"), ".child { font-size: 14px; }\n@size: 14px;");
+    ctx = newContext(compiler, map);
+    assertEquals(compiler.compile(source, ctx, path("foo.less")),
+        ".child{font-size:14px}.ruleset{color:#abc;font-size:14px}");
+    assertEquals(ctx.stats().cachedImports(), 0);
+    assertEquals(ctx.stats().fileReads(), 3);
+  }
+
+  @Test
+  public void testImportOnce() throws LessException {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("base.less"), "@import 'child.less'; .base { color: red; }");
+    map.put(path("child.less"), ".child { color: blue; }");
+
+    LessCompiler compiler = new LessCompiler(LessCompiler.defaultFunctionTable(), new LruImportCache());
+    String source = "@import 'base.less';";
+    LessContext ctx = newContext(compiler, map);
+    assertEquals(compiler.compile(source, ctx, path("foo.less")), ".child{color:blue}.base{color:red}");
+
+    // The nested import of child.less must be suppressed, so the cached tree
+    // for base.less cannot be used.
+    source = "@import 'child.less'; @import 'base.less';";
+    ctx = newContext(compiler, map);
+    assertEquals(compiler.compile(source, ctx, path("foo.less")), ".child{color:blue}.base{color:red}");
+  }
+
+  @Test
+  public void testInterpolatedImport() throws LessException {
+    Map<Path, String> map = new HashMap<>();
+    map.put(path("base.less"), "@import '@{name}.less';");
+    map.put(path("one.less"), ".one { color: red; }");
+    map.put(path("two.less"), ".two { color: blue; }");
+
+    // Trees depending on variables from the importing file are not cached.
+    LessCompiler compiler = new LessCompiler(LessCompiler.defaultFunctionTable(), new LruImportCache());
+    LessContext ctx = newContext(compiler, map);
+    assertEquals(compiler.compile("@name: one; @import 'base.less';", ctx, path("foo.less")), ".one{color:red}");
+    ctx = newContext(compiler, map);
+    assertEquals(compiler.compile("@name: two; @import 'base.less';", ctx, path("foo.less")), ".two{color:blue}");
+  }
+
+  @Test
+  public void testEviction() {
+    ImportKey one = new ImportKey(path("one.less"), "0123456789", "");
+    ImportKey two = new ImportKey(path("two.less"), "0123456789", "");
+    ImportKey three = new ImportKey(path("three.less"), "0123456789", "");
+    LruImportCache cache = new LruImportCache(25);
+
+    cache.put(one, tree(10));
+    cache.put(two, tree(10));
+    assertNotNull(cache.get(one));
+    cache.put(three, tree(10));
+
+    // Least-recently used tree is evicted.
+    assertNull(cache.get(two));
+    assertNotNull(cache.get(one));
+    assertNotNull(cache.get(three));
+    assertEquals(cache.weight(), 20);
+
+    // Trees heavier than the limit are never cached.
+    cache.put(two, tree(30));
+    assertNull(cache.get(two));
+    assertEquals(cache.size(), 2);
+  }
+
+  private static ImportTree tree(int length) {
+    return new ImportTree(new Block(), Collections.<ImportTree.Dependency>emptyList(), length);
+  }
+
+  private static LessContext newContext(LessCompiler compiler, Map<Path, String> map) {
+    LessOptions opts = new LessOptions();
+    opts.compress(true);
+    opts.importOnce(true);
+    LessContext ctx = new LessContext(opts, new HashMapLessLoader(map));
+    ctx.setFunctionTable(compiler.functionTable());
+    return ctx;
+  }
+
+  private static Path path(String path) {
+    return Paths.get(path).toAbsolutePath().normalize();
+  }
+
+}
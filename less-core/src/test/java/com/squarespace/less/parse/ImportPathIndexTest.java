@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessOptions;
+
+
+public class ImportPathIndexTest {
+
+  @Test
+  public void testIndex() throws Exception {
+    Path dir = Files.createTempDirectory("less-");
+    Path foo = Files.createDirectory(dir.resolve("foo"));
+    Path bar = Files.createDirectory(dir.resolve("bar"));
+    Files.createDirectory(bar.resolve("sub"));
+    try {
+      write(foo.resolve("one.less"), ".one { color: red; }");
+      write(bar.resolve("one.less"), ".one { color: blue; }");
+      write(bar.resolve("sub/two.less"), ".two { color: green; }");
+
+      ImportPathIndex index = new ImportPathIndex(Arrays.asList(foo, bar));
+      assertEquals(index.size(), 2);
+      assertEquals(index.lookup("one.less"), Arrays.asList(foo, bar));
+      assertEquals(index.lookup("sub/../sub/two.less"), Arrays.asList(bar));
+      assertEquals(index.lookup("three.less"), Collections.emptyList());
+
+      assertTrue(index.handles(Arrays.asList(foo, bar), "one.less"));
+      assertFalse(index.handles(Arrays.asList(bar, foo), "one.less"));
+      assertFalse(index.handles(Arrays.asList(foo, bar), "../one.less"));
+
+      // Import paths are searched in the same order as without the index.
+      LessCompiler compiler = new LessCompiler();
+      LessOptions opts = new LessOptions(true);
+      opts.addImportPath(foo.toString());
+      opts.addImportPath(bar.toString());
+      LessContext ctx = new LessContext(opts);
+      ctx.setFunctionTable(compiler.functionTable());
+      ctx.importer().pathIndex(index);
+      assertEquals(compiler.compile("@import 'one.less'; @import 'sub/two.less';", ctx),
+          ".one{color:red}.two{color:green}");
+
+      // Files added after the scan are seen once the index is refreshed.
+      write(bar.resolve("three.less"), ".three { color: black; }");
+      assertEquals(index.lookup("three.less"), Collections.emptyList());
+      index.refresh();
+      assertEquals(index.lookup("three.less"), Arrays.asList(bar));
+
+    } finally {
+      Files.deleteIfExists(foo.resolve("one.less"));
+      Files.deleteIfExists(bar.resolve("one.less"));
+      Files.deleteIfExists(bar.resolve("three.less"));
+      Files.deleteIfExists(bar.resolve("sub/two.less"));
+      Files.deleteIfExists(bar.resolve("sub"));
+      Files.deleteIfExists(foo);
+      Files.deleteIfExists(bar);
+      Files.delete(dir);
+    }
+  }
+
+  @Test
+  public void testSymlinkedDirectory() throws Exception {
+    Path dir = Files.createTempDirectory("less-");
+    Path inc = Files.createDirectory(dir.resolve("inc"));
+    Path real = Files.createDirectory(dir.resolve("real"));
+    Path lib = inc.resolve("lib");
+    Path loop = real.resolve("loop");
+    try {
+      write(real.resolve("a.less"), ".a { color: red; }");
+      try {
+        Files.createSymbolicLink(lib, real);
+        Files.createSymbolicLink(loop, real);
+      } catch (UnsupportedOperationException e) {
+        throw new SkipException("symbolic links are not supported");
+      }
+
+      // Files under a linked directory are indexed, and a link back to a
+      // parent directory is skipped.
+      ImportPathIndex index = new ImportPathIndex(Arrays.asList(inc));
+      assertTrue(index.handles(Arrays.asList(inc), "lib/a.less"));
+      assertEquals(index.lookup("lib/a.less"), Arrays.asList(inc));
+
+      LessCompiler compiler = new LessCompiler();
+      LessOptions opts = new LessOptions(true);
+      opts.addImportPath(inc.toString());
+      LessContext ctx = new LessContext(opts);
+      ctx.setFunctionTable(compiler.functionTable());
+      ctx.importer().pathIndex(index);
+      assertEquals(compiler.compile("@import 'lib/a.less';", ctx), ".a{color:red}");
+
+    } finally {
+      Files.deleteIfExists(lib);
+      Files.deleteIfExists(loop);
+      Files.deleteIfExists(real.resolve("a.less"));
+      Files.deleteIfExists(inc);
+      Files.deleteIfExists(real);
+      Files.delete(dir);
+    }
+  }
+
+  private static void write(Path path, String source) throws Exception {
+    Files.write(path, source.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
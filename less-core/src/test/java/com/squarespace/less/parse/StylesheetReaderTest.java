@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessException;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.exec.LessSuiteBase;
+import com.squarespace.less.model.Comment;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.NodeType;
+import com.squarespace.less.model.Stylesheet;
+
+
+public class StylesheetReaderTest extends LessSuiteBase {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  @Test
+  public void testSuite() throws Exception {
+    Path lessRoot = testSuiteRoot().resolve("less");
+    for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+      String fileName = lessPath.getFileName().toString();
+      LessOptions opts = options(lessRoot, false);
+      Stylesheet sheet = COMPILER.parse(LessUtils.readFile(lessPath), context(opts));
+      detectOptions(sheet, opts);
+
+      byte[] data = StylesheetWriter.serialize(sheet);
+      Stylesheet loaded = StylesheetReader.read(data);
+      assertEquals(loaded.block().rules().size(), sheet.block().rules().size(), fileName);
+      assertEquals(COMPILER.render(loaded, context(opts)), COMPILER.render(sheet, context(opts)), fileName);
+
+      // Serializing the loaded tree produces identical output.
+      assertEquals(StylesheetWriter.serialize(loaded), data, fileName);
+    }
+  }
+
+  @Test
+  public void testTracing() throws Exception {
+    // Tracing adds import markers to the parsed tree.
+    Path lessRoot = testSuiteRoot().resolve("less");
+    LessOptions opts = options(lessRoot, true);
+    Stylesheet sheet = COMPILER.parse("@import 'imports/_parent-1.less';\n.a { color: red; }", context(opts));
+    Stylesheet loaded = StylesheetReader.read(StylesheetWriter.serialize(sheet));
+    assertEquals(loaded.block().rules().get(0).type(), NodeType.IMPORT_MARKER);
+    assertEquals(COMPILER.render(loaded, context(opts)), COMPILER.render(sheet, context(opts)));
+  }
+
+  @Test
+  public void testMapped() throws Exception {
+    String source = "@c: #123; .a when (iscolor(@c)) { color: fade(@c, 50%); &:hover { width: (1px / 3); } }";
+    LessOptions opts = new LessOptions(true);
+    Stylesheet sheet = COMPILER.parse(source, context(opts));
+    Path path = Files.createTempFile("less-", ".lesb");
+    try {
+      StylesheetWriter.write(sheet, path);
+      Stylesheet loaded = StylesheetReader.read(path);
+      assertEquals(COMPILER.render(loaded, context(opts)),
+          ".a{color:rgba(17,34,51,.5)}.a:hover{width:.3333333333333333px}");
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void testInvalid() throws LessException {
+    byte[] data = StylesheetWriter.serialize(COMPILER.parse(".a { color: red; }", context(new LessOptions())));
+    assertInvalid(new byte[] { 1, 2, 3, 4, 5 });
+    assertInvalid(Arrays.copyOf(data, data.length / 2));
+
+    // Bump the version
+    byte[] copy = Arrays.copyOf(data, data.length);
+    copy[4]++;
+    assertInvalid(copy);
+  }
+
+  private static void assertInvalid(byte[] data) {
+    try {
+      StylesheetReader.read(data);
+      fail("expected IOException");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  private static void detectOptions(Stylesheet sheet, LessOptions opts) {
+    FlexList<Node> rules = sheet.block().rules();
+    for (int i = 0; i < rules.size(); i++) {
+      Node rule = rules.get(i);
+      if (rule instanceof Comment && ((Comment)rule).body().trim().equals("strict=false")) {
+        opts.strict(false);
+      }
+    }
+  }
+
+  private static LessOptions options(Path lessRoot, boolean tracing) {
+    LessOptions opts = new LessOptions();
+    opts.addImportPath(lessRoot.toString());
+    opts.tracing(tracing);
+    return opts;
+  }
+
+  private static LessContext context(LessOptions opts) {
+    LessContext ctx = new LessContext(opts);
+    ctx.setFunctionTable(COMPILER.functionTable());
+    return ctx;
+  }
+
+}
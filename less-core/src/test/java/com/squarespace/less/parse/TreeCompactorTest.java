@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2014 SQUARESPACE, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.squarespace.less.parse;
+
+import static org.testng.Assert.assertEquals;
+
+import java.nio.file.Path;
+
+import org.testng.annotations.Test;
+
+import com.squarespace.less.LessCompiler;
+import com.squarespace.less.LessContext;
+import com.squarespace.less.LessOptions;
+import com.squarespace.less.core.FlexList;
+import com.squarespace.less.core.LessUtils;
+import com.squarespace.less.exec.LessRenderer;
+import com.squarespace.less.exec.LessSuiteBase;
+import com.squarespace.less.model.Comment;
+import com.squarespace.less.model.Node;
+import com.squarespace.less.model.Stylesheet;
+
+
+public class TreeCompactorTest extends LessSuiteBase {
+
+  private static final LessCompiler COMPILER = new LessCompiler();
+
+  @Test
+  public void testSuite() throws Exception {
+    Path lessRoot = testSuiteRoot().resolve("less");
+    for (Path lessPath : LessUtils.getMatchingFiles(lessRoot, GLOB_LESS)) {
+      String fileName = lessPath.getFileName().toString();
+      LessOptions opts = new LessOptions();
+      opts.addImportPath(lessRoot.toString());
+      Stylesheet sheet = COMPILER.parse(LessUtils.readFile(lessPath), context(opts));
+      detectOptions(sheet, opts);
+
+      String expected = COMPILER.render(sheet, context(opts));
+      byte[] serialized = StylesheetWriter.serialize(sheet);
+
+      // Compacting the parsed tree changes neither its structure nor its output.
+      COMPILER.compact(sheet);
+      assertEquals(StylesheetWriter.serialize(sheet), serialized, fileName);
+      assertEquals(COMPILER.render(sheet, context(opts)), expected, fileName);
+
+      // Expanded trees can be compacted too.
+      Stylesheet expanded = COMPILER.expand(sheet, context(opts));
+      COMPILER.compact(expanded);
+      assertEquals(LessRenderer.render(context(opts), expanded), expected, fileName);
+    }
+  }
+
+  @Test
+  public void testVariableCache() throws Exception {
+    LessOptions opts = new LessOptions(true);
+    Stylesheet sheet = COMPILER.parse("@a: 1px; .x { width: @a; }", context(opts));
+    assertEquals(sheet.block().resolveDefinition("@a").value().repr(), "1px");
+    COMPILER.compact(sheet);
+    assertEquals(sheet.block().resolveDefinition("@a").value().repr(), "1px");
+    assertEquals(COMPILER.render(sheet, context(opts)), ".x{width:1px}");
+  }
+
+  private static void detectOptions(Stylesheet sheet, LessOptions opts) {
+    FlexList<Node> rules = sheet.block().rules();
+    for (int i = 0; i < rules.size(); i++) {
+      Node rule = rules.get(i);
+      if (rule instanceof Comment && ((Comment)rule).body().trim().equals("strict=false")) {
+        opts.strict(false);
+      }
+    }
+  }
+
+  private static LessContext context(LessOptions opts) {
+    LessContext ctx = new LessContext(opts);
+    ctx.setFunctionTable(COMPILER.functionTable());
+    return ctx;
+  }
+
+}